@@ -0,0 +1,103 @@
+package com.example.moviesapi.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.moviesapi.Application;
+
+//Load test comparing GET /api/movies/page (sync) with GET /api/async/movies/page (async), both on a platform-thread
+//Tomcat limited to the given number of request threads and under the same number of concurrent clients.
+//Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.example.moviesapi.benchmark.AsyncLoadBenchmark -Dbenchmark.args="1000 20 50"
+public class AsyncLoadBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int tomcatThreads = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		
+		List<String> results = new ArrayList<>();
+		for (String mode : List.of("sync", "async")) {
+			results.add(run(mode, clients, seconds, tomcatThreads));
+		}
+		
+		System.out.printf("%n%d concurrent clients, %d seconds, %d Tomcat threads%n", clients, seconds, tomcatThreads);
+		System.out.printf("%6s %12s %12s %12s %12s %8s %8s%n", "mode", "req/s", "p50 (ms)", "p99 (ms)", "max (ms)", "503s", "errors");
+		results.forEach(System.out::println);
+	}
+	
+	private static String run(String mode, int clients, int seconds, int tomcatThreads) throws Exception {
+		SpringApplicationBuilder builder = new SpringApplicationBuilder(Application.class)
+				.properties("server.port=0", "logging.level.root=WARN", "movies.query-plan-check=off",
+						"server.tomcat.threads.max=" + tomcatThreads, "server.tomcat.max-connections=" + (clients + 100));
+		
+		try (ConfigurableApplicationContext context = builder.run()) {
+			String baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+			HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+					.connectTimeout(Duration.ofSeconds(30)).build();
+			ThreadModeLoadBenchmark.seed(httpClient, baseUri);
+			
+			String pageUri = baseUri + (mode.equals("async") ? "/api/async/movies/page" : "/api/movies/page");
+			long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+			long[][] latencies = new long[clients][];
+			AtomicLong shed = new AtomicLong();
+			AtomicLong errors = new AtomicLong();
+			
+			try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+				for (int c = 0; c < clients; c++) {
+					int client = c;
+					executor.submit(() -> latencies[client] = load(httpClient, pageUri, deadline, shed, errors));
+				}
+			}
+			
+			long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+			return String.format("%6s %12.0f %12.2f %12.2f %12.2f %8d %8d", mode, all.length / (double) seconds,
+					ThreadModeLoadBenchmark.percentile(all, 0.50), ThreadModeLoadBenchmark.percentile(all, 0.99),
+					all.length == 0 ? 0 : all[all.length - 1] / 1e6, shed.get(), errors.get());
+		}
+	}
+	
+	private static long[] load(HttpClient httpClient, String pageUri, long deadline, AtomicLong shed, AtomicLong errors) {
+		long[] latencies = new long[1024];
+		int count = 0;
+		
+		while (System.nanoTime() < deadline) {
+			long after = ThreadLocalRandom.current().nextInt(ThreadModeLoadBenchmark.MOVIES - 100);
+			long start = System.nanoTime();
+			try {
+				HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(URI.create(pageUri + "?after=" + after + "&limit=100"))
+						.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.discarding());
+				if (response.statusCode() == 503) {
+					shed.incrementAndGet();
+					continue;
+				}
+				if (response.statusCode() != 200) {
+					errors.incrementAndGet();
+					continue;
+				}
+			} catch (Exception e) {
+				errors.incrementAndGet();
+				continue;
+			}
+			
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = System.nanoTime() - start;
+		}
+		return Arrays.copyOf(latencies, count);
+	}
+}
@@ -0,0 +1,72 @@
+package com.example.moviesapi.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.repository.MovieRepository;
+import com.example.moviesapi.repository.QueryMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+//Embedded H2 database created from schema.sql and filled with generated movies, shared by the benchmarks
+final class BenchmarkDatabase {
+
+	static final LocalDate FIRST_LAUNCH_DATE = LocalDate.of(1950, 1, 1);
+	static final int LAUNCH_DATES = 25_000;
+	
+	final SingleConnectionDataSource dataSource;
+	final JdbcTemplate jdbcTemplate;
+	final MovieRepository movieRepository;
+	
+	BenchmarkDatabase(String name, int rows) {
+		//a single reused connection keeps connection setup out of the measurements
+		this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:" + name, "sa", "", true);
+		new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+		
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.movieRepository = new MovieRepository(JdbcClient.create(dataSource), jdbcTemplate,
+				new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+				new QueryMetrics(new SimpleMeterRegistry(), Duration.ofSeconds(1)), 1_000, 500);
+		populate(rows);
+	}
+	
+	private void populate(int rows) {
+		Random random = new Random(42);
+		List<Movie> movies = new ArrayList<>(10_000);
+		
+		for (int i = 0; i < rows; i++) {
+			movies.add(randomMovie(random, i));
+			
+			if (movies.size() == 10_000 || i == rows - 1) {
+				movieRepository.createAll(movies);
+				movies.clear();
+			}
+		}
+	}
+	
+	static Movie randomMovie(Random random, int i) {
+		return new Movie("Movie " + i, randomLaunchDate(random), BigDecimal.valueOf(random.nextInt(101), 1),
+				(long) random.nextInt(1_000_000_000));
+	}
+	
+	static LocalDate randomLaunchDate(Random random) {
+		return FIRST_LAUNCH_DATE.plusDays(random.nextInt(LAUNCH_DATES));
+	}
+	
+	void close() {
+		dataSource.destroy();
+	}
+}
@@ -0,0 +1,77 @@
+package com.example.moviesapi.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.snapshot.MovieSnapshot;
+
+//Compares the retained heap of the catalog held as a List<Movie> with the same catalog held in a MovieSnapshot,
+//measured as used heap after a full GC, and the time of a full scan over each. Both scans sum the revenues, the sums
+//are printed so they can't be optimized away and must be equal.
+//Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.example.moviesapi.benchmark.CatalogFootprintBenchmark -Dbenchmark.args="1000000"
+public class CatalogFootprintBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int movies = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		
+		long baseline = usedHeapAfterGc();
+		List<Movie> objects = generate(movies);
+		long objectsHeap = usedHeapAfterGc() - baseline;
+		Scan objectsScan = scan(objects::iterator);
+		
+		MovieSnapshot movieSnapshot = new MovieSnapshot("snapshot");
+		movieSnapshot.putAll(objects);
+		objects = null;
+		long snapshotHeap = usedHeapAfterGc() - baseline;
+		Scan snapshotScan = scan(() -> movieSnapshot.findAll().iterator());
+		
+		System.out.printf("%n%d movies%n", movies);
+		System.out.printf("%12s %14s %14s %14s %20s%n", "layout", "heap (MB)", "bytes/movie", "scan (ms)", "revenue sum");
+		System.out.printf("%12s %14.1f %14d %14d %20d%n", "objects", objectsHeap / 1e6, objectsHeap / movies,
+				objectsScan.millis(), objectsScan.revenue());
+		System.out.printf("%12s %14.1f %14d %14d %20d%n", "snapshot", snapshotHeap / 1e6, snapshotHeap / movies,
+				snapshotScan.millis(), snapshotScan.revenue());
+	}
+	
+	private record Scan(long millis, long revenue) {
+	}
+	
+	private static List<Movie> generate(int movies) {
+		Random random = new Random(42);
+		String[] words = { "Night", "Star", "Return", "Love", "City", "Last", "King", "Dream", "War", "Summer" };
+		List<Movie> list = new ArrayList<>(movies);
+		for (int i = 1; i <= movies; i++) {
+			String title = words[random.nextInt(words.length)] + " of the " + words[random.nextInt(words.length)] + " " + i;
+			Movie movie = new Movie((long) i, title, LocalDate.of(1950, 1, 1).plusDays(random.nextInt(27_000)),
+					BigDecimal.valueOf(random.nextInt(101), 1), random.nextLong(1_000_000_000L));
+			movie.setVersion(0L);
+			list.add(movie);
+		}
+		return list;
+	}
+	
+	//Sums the revenue of every movie; for the snapshot this includes materializing them with findAll().
+	private static Scan scan(Iterable<Movie> movies) {
+		long start = System.nanoTime();
+		long total = 0;
+		for (Movie movie : movies) {
+			total += movie.getRevenue();
+		}
+		return new Scan((System.nanoTime() - start) / 1_000_000, total);
+	}
+	
+	private static long usedHeapAfterGc() throws InterruptedException {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(200);
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
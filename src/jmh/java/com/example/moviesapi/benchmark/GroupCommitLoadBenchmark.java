@@ -0,0 +1,108 @@
+package com.example.moviesapi.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.moviesapi.Application;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+//Load test comparing POST /api/movies with one insert per request (direct) and with group commit,
+//under the same number of concurrent clients each posting one movie at a time.
+//Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.example.moviesapi.benchmark.GroupCommitLoadBenchmark -Dbenchmark.args="200 20"
+public class GroupCommitLoadBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		
+		List<String> results = new ArrayList<>();
+		for (String mode : List.of("direct", "group-commit")) {
+			results.add(run(mode, clients, seconds));
+		}
+		
+		System.out.printf("%n%d concurrent clients, %d seconds%n", clients, seconds);
+		System.out.printf("%14s %12s %12s %12s %12s %8s %8s%n", "mode", "inserts/s", "p50 (ms)", "p99 (ms)", "max (ms)", "429s", "errors");
+		results.forEach(System.out::println);
+	}
+	
+	private static String run(String mode, int clients, int seconds) throws Exception {
+		SpringApplicationBuilder builder = new SpringApplicationBuilder(Application.class)
+				.properties("server.port=0", "logging.level.root=WARN", "movies.query-plan-check=off",
+						"movies.ingest.mode=" + mode)
+				.profiles("virtual");
+		
+		try (ConfigurableApplicationContext context = builder.run()) {
+			String baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+			HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+					.connectTimeout(Duration.ofSeconds(30)).build();
+			
+			long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+			long[][] latencies = new long[clients][];
+			AtomicLong rejected = new AtomicLong();
+			AtomicLong errors = new AtomicLong();
+			
+			try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+				for (int c = 0; c < clients; c++) {
+					int client = c;
+					executor.submit(() -> latencies[client] = load(httpClient, baseUri, client, deadline, rejected, errors));
+				}
+			}
+			
+			long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+			return String.format("%14s %12.0f %12.2f %12.2f %12.2f %8d %8d", mode, all.length / (double) seconds,
+					ThreadModeLoadBenchmark.percentile(all, 0.50), ThreadModeLoadBenchmark.percentile(all, 0.99),
+					all.length == 0 ? 0 : all[all.length - 1] / 1e6, rejected.get(), errors.get());
+		}
+	}
+	
+	private static long[] load(HttpClient httpClient, String baseUri, int client, long deadline,
+			AtomicLong rejected, AtomicLong errors) throws Exception {
+		ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		Random random = new Random(client);
+		long[] latencies = new long[1024];
+		int count = 0;
+		
+		while (System.nanoTime() < deadline) {
+			byte[] body = objectMapper.writeValueAsBytes(BenchmarkDatabase.randomMovie(random, count));
+			long start = System.nanoTime();
+			try {
+				HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUri + "/api/movies"))
+						.header("Content-Type", "application/json")
+						.POST(HttpRequest.BodyPublishers.ofByteArray(body))
+						.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.discarding());
+				if (response.statusCode() == 429) {
+					rejected.incrementAndGet();
+					continue;
+				}
+				if (response.statusCode() != 201) {
+					errors.incrementAndGet();
+					continue;
+				}
+			} catch (Exception e) {
+				errors.incrementAndGet();
+				continue;
+			}
+			
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = System.nanoTime() - start;
+		}
+		return Arrays.copyOf(latencies, count);
+	}
+}
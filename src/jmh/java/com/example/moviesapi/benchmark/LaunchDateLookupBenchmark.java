@@ -0,0 +1,58 @@
+package com.example.moviesapi.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.moviesapi.model.Movie;
+
+//Measures MovieRepository.findByLaunchDate latency as the Movie table grows, with and without the launchDate index
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LaunchDateLookupBenchmark {
+
+	@Param({"1000", "10000", "100000", "1000000"})
+	int rows;
+	
+	@Param({"true", "false"})
+	boolean indexed;
+	
+	private BenchmarkDatabase database;
+	private final Random random = new Random(7);
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		database = new BenchmarkDatabase("launchDate" + rows + indexed, rows);
+		if (!indexed) {
+			database.jdbcTemplate.execute("DROP INDEX idx_movie_launchDate_rating");
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		database.close();
+	}
+	
+	@Benchmark
+	public List<Movie> findByLaunchDate() {
+		return database.movieRepository.findByLaunchDate(BenchmarkDatabase.randomLaunchDate(random));
+	}
+}
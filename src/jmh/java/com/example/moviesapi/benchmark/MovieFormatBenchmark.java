@@ -0,0 +1,82 @@
+package com.example.moviesapi.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.moviesapi.model.Movie;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+//Encoding of large movie lists as JSON, CBOR and Smile, with mappers configured like BinaryFormatsConfig,
+//with and without the gzip compression applied by Tomcat. The encoded and compressed sizes, the bytes on the wire,
+//are printed once per trial
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovieFormatBenchmark {
+
+	@Param({"json", "cbor", "smile"})
+	String format;
+	
+	@Param({"10000", "100000"})
+	int movies;
+	
+	private ObjectMapper objectMapper;
+	private List<Movie> list;
+	
+	@Setup
+	public void setUp() throws IOException {
+		ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+		objectMapper = switch (format) {
+			case "cbor" -> jsonMapper.copyWith(new CBORFactory());
+			case "smile" -> jsonMapper.copyWith(new SmileFactory());
+			default -> jsonMapper;
+		};
+		
+		Random random = new Random(42);
+		list = new ArrayList<>(movies);
+		for (int i = 0; i < movies; i++) {
+			Movie movie = BenchmarkDatabase.randomMovie(random, i);
+			movie.setId(i + 1L);
+			list.add(movie);
+		}
+		
+		System.out.printf("%n%s, %d movies: %d bytes, %d bytes gzipped%n", format, movies, encode().length, encodeGzip().length);
+	}
+	
+	@Benchmark
+	public byte[] encode() throws IOException {
+		return objectMapper.writeValueAsBytes(list);
+	}
+	
+	@Benchmark
+	public byte[] encodeGzip() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+			objectMapper.writeValue(gzip, list);
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,97 @@
+package com.example.moviesapi.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.moviesapi.cache.MovieJsonCache;
+import com.example.moviesapi.model.Movie;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+//Jackson (de)serialization of Movie, with its @JsonFormat LocalDate and BigDecimal fields,
+//using an ObjectMapper built the same way Spring Boot builds the application one,
+//and the same reads answered from the pre-serialized bodies of MovieJsonCache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovieJsonBenchmark {
+
+	private static final int LIST_SIZE = 1_000;
+	
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private Movie movie;
+	private byte[] movieJson;
+	private List<Movie> movies;
+	private byte[] moviesJson;
+	private MovieJsonCache movieJsonCache;
+	
+	@Setup
+	public void setUp() throws JsonProcessingException {
+		Random random = new Random(42);
+		movies = new ArrayList<>(LIST_SIZE);
+		for (int i = 0; i < LIST_SIZE; i++) {
+			Movie generated = BenchmarkDatabase.randomMovie(random, i);
+			generated.setId(i + 1L);
+			movies.add(generated);
+		}
+		
+		movie = movies.get(0);
+		movieJson = objectMapper.writeValueAsBytes(movie);
+		moviesJson = objectMapper.writeValueAsBytes(movies);
+		
+		movieJsonCache = new MovieJsonCache(objectMapper, LIST_SIZE, 1);
+		movieJsonCache.getById(movie.getId(), id -> movie);
+		movieJsonCache.getByLaunchDate(movie.getLaunchDate(), launchDate -> movies);
+	}
+	
+	@Benchmark
+	public byte[] serializeMovie() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(movie);
+	}
+	
+	@Benchmark
+	public byte[] cachedMovie() {
+		return movieJsonCache.getById(movie.getId(), id -> movie).json();
+	}
+	
+	@Benchmark
+	public Movie deserializeMovie() throws Exception {
+		return objectMapper.readValue(movieJson, Movie.class);
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public byte[] serializeMovieList() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(movies);
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public byte[] cachedMovieList() {
+		return movieJsonCache.getByLaunchDate(movie.getLaunchDate(), launchDate -> movies);
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<Movie> deserializeMovieList() throws Exception {
+		return objectMapper.readValue(moviesJson, new TypeReference<List<Movie>>() {});
+	}
+}
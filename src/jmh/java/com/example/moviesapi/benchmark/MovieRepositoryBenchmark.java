@@ -0,0 +1,110 @@
+package com.example.moviesapi.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.model.MovieUpdate;
+
+//Cost of the MovieRepository statements against an embedded H2 table of 1k, 100k and 1M rows
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovieRepositoryBenchmark {
+
+	@Param({"1000", "100000", "1000000"})
+	int rows;
+	
+	private BenchmarkDatabase database;
+	private final Random random = new Random(7);
+	private int created;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		database = new BenchmarkDatabase("repository" + rows, rows);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		database.close();
+	}
+	
+	@Benchmark
+	public Movie create() {
+		return database.movieRepository.create(BenchmarkDatabase.randomMovie(random, rows + created++));
+	}
+	
+	@Benchmark
+	public Optional<Movie> findById() {
+		return database.movieRepository.findById(1L + random.nextInt(rows));
+	}
+	
+	//A watchlist of 200 ids, read one query per id or with chunked IN queries
+	@Benchmark
+	public List<Optional<Movie>> findById200() {
+		return randomIds(200).stream().map(database.movieRepository::findById).toList();
+	}
+	
+	@Benchmark
+	public List<Movie> findAllById200() {
+		return database.movieRepository.findAllById(randomIds(200));
+	}
+	
+	//A rating refresh of 200 movies, one update per movie or batched updates in one transaction per chunk
+	@Benchmark
+	public List<Optional<MovieUpdate>> update200() {
+		return ratingChanges(200).stream().map(movie -> database.movieRepository.update(movie, movie.getId(), false)).toList();
+	}
+	
+	@Benchmark
+	public List<MovieUpdate> updateAll200() {
+		List<MovieUpdate> updated = new ArrayList<>(200);
+		database.movieRepository.updateAll(ratingChanges(200), false, new ReentrantLock(), (chunk, updates) -> updated.addAll(updates));
+		return updated;
+	}
+	
+	private List<Movie> ratingChanges(int count) {
+		List<Movie> movies = new ArrayList<>(count);
+		for (long id : randomIds(count)) {
+			Movie movie = BenchmarkDatabase.randomMovie(random, (int) id);
+			movie.setId(id);
+			movies.add(movie);
+		}
+		return movies;
+	}
+	
+	private List<Long> randomIds(int count) {
+		List<Long> ids = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			ids.add(1L + random.nextInt(rows));
+		}
+		return ids;
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public List<Movie> findAll() {
+		return database.movieRepository.findAll();
+	}
+}
@@ -0,0 +1,72 @@
+package com.example.moviesapi.benchmark;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.moviesapi.cache.MovieCache;
+import com.example.moviesapi.cache.MovieJsonCache;
+import com.example.moviesapi.cache.SingleFlight;
+import com.example.moviesapi.cache.YearStatsSummary;
+import com.example.moviesapi.changes.ChangeLog;
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.search.TitleIndex;
+import com.example.moviesapi.snapshot.MovieSnapshot;
+import com.example.moviesapi.service.impl.MovieServiceImpl;
+
+//MovieServiceImpl.findById with a popular set of 1000 titles served by MovieCache, and uniformly spread ids missing it
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovieServiceBenchmark {
+
+	private static final int POPULAR_MOVIES = 1_000;
+
+	@Param({"1000", "100000", "1000000"})
+	int rows;
+	
+	private BenchmarkDatabase database;
+	private MovieServiceImpl movieService;
+	private final Random random = new Random(7);
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		database = new BenchmarkDatabase("service" + rows, rows);
+		movieService = new MovieServiceImpl(database.movieRepository,
+				new MovieCache(POPULAR_MOVIES, Duration.ofMinutes(10), Duration.ofSeconds(5)),
+				new MovieJsonCache(Jackson2ObjectMapperBuilder.json().build(), POPULAR_MOVIES, 1_000), new YearStatsSummary(true), new TitleIndex(10_000, 1_000_000), new MovieSnapshot("database"), new SingleFlight(), new ChangeLog(10_000), 1_000);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		database.close();
+	}
+	
+	@Benchmark
+	public Movie findPopularById() {
+		return movieService.findById(1L + random.nextInt(Math.min(rows, POPULAR_MOVIES)));
+	}
+	
+	@Benchmark
+	public Movie findAnyById() {
+		return movieService.findById(1L + random.nextInt(rows));
+	}
+}
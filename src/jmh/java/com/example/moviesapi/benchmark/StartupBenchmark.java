@@ -0,0 +1,118 @@
+package com.example.moviesapi.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Starts the packaged application as a separate process several times per launch mode and reports the median
+//time from process start to the first successful GET /api/movies, and the resident set size right after it.
+//Needs the artifacts of the prod build, run with: mvn -Pprod package
+//and then: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.example.moviesapi.benchmark.StartupBenchmark -Dbenchmark.args="5"
+public class StartupBenchmark {
+
+	private static final Path JAR = Path.of("target", "moviesapi-0.0.1-SNAPSHOT.jar");
+	private static final Path EXTRACTED_JAR = Path.of("target", "app", "moviesapi-0.0.1-SNAPSHOT.jar");
+	private static final Path CDS_ARCHIVE = Path.of("target", "app", "application.jsa");
+	
+	private record Mode(String name, List<String> jvmArgs, Path jar) {
+	}
+
+	public static void main(String[] args) throws Exception {
+		int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		if (!Files.exists(EXTRACTED_JAR) || !Files.exists(CDS_ARCHIVE)) {
+			System.err.println("Build the prod artifacts first with: mvn -Pprod package");
+			System.exit(1);
+		}
+		
+		List<Mode> modes = List.of(
+				new Mode("default", List.of(), JAR),
+				new Mode("prod (lazy)", List.of("-Dspring.profiles.active=prod"), JAR),
+				new Mode("prod + AOT", List.of("-Dspring.profiles.active=prod", "-Dspring.aot.enabled=true"), EXTRACTED_JAR),
+				new Mode("prod + AOT + CDS", List.of("-Dspring.profiles.active=prod", "-Dspring.aot.enabled=true",
+						"-XX:SharedArchiveFile=" + CDS_ARCHIVE), EXTRACTED_JAR));
+		
+		List<String> results = new ArrayList<>();
+		for (Mode mode : modes) {
+			long[] startupMillis = new long[runs];
+			long[] rssKilobytes = new long[runs];
+			for (int run = 0; run < runs; run++) {
+				long[] result = start(mode);
+				startupMillis[run] = result[0];
+				rssKilobytes[run] = result[1];
+			}
+			results.add(String.format("%18s %24d %14.1f", mode.name(), median(startupMillis), median(rssKilobytes) / 1024.0));
+		}
+		
+		System.out.printf("%nMedian of %d runs%n", runs);
+		System.out.printf("%18s %24s %14s%n", "mode", "first request (ms)", "RSS (MB)");
+		results.forEach(System.out::println);
+	}
+	
+	//Returns the time to the first successful request and the RSS in kilobytes
+	private static long[] start(Mode mode) throws Exception {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		
+		List<String> command = new ArrayList<>();
+		command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(mode.jvmArgs());
+		command.addAll(List.of("-jar", mode.jar().toString(), "--server.port=" + port, "--logging.level.root=WARN"));
+		
+		HttpClient httpClient = HttpClient.newHttpClient();
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/movies"))
+				.timeout(Duration.ofSeconds(5)).build();
+		
+		long start = System.nanoTime();
+		Process process = new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+		try {
+			while (true) {
+				if (!process.isAlive()) {
+					throw new IllegalStateException(mode.name() + " exited with " + process.exitValue());
+				}
+				try {
+					if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+						break;
+					}
+				} catch (IOException e) {
+					//not listening yet
+				}
+				Thread.sleep(10);
+			}
+			long startupMillis = (System.nanoTime() - start) / 1_000_000;
+			return new long[] { startupMillis, rssKilobytes(process.pid()) };
+		} finally {
+			process.destroy();
+			process.waitFor();
+		}
+	}
+	
+	//VmRSS of /proc/<pid>/status, only available on Linux
+	private static long rssKilobytes(long pid) throws IOException {
+		Path status = Path.of("/proc", Long.toString(pid), "status");
+		if (!Files.exists(status)) {
+			return 0;
+		}
+		return Files.readAllLines(status).stream()
+				.filter(line -> line.startsWith("VmRSS:"))
+				.mapToLong(line -> Long.parseLong(line.replaceAll("\\D", "")))
+				.findFirst().orElse(0);
+	}
+	
+	private static long median(long[] values) {
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
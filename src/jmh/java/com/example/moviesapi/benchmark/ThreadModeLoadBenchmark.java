@@ -0,0 +1,125 @@
+package com.example.moviesapi.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.moviesapi.Application;
+import com.example.moviesapi.model.Movie;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+//Load test comparing throughput and latency of GET /api/movies/{id} with the default platform-thread Tomcat
+//and with the "virtual" profile, under the same number of concurrent clients.
+//Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.example.moviesapi.benchmark.ThreadModeLoadBenchmark -Dbenchmark.args="2000 20"
+public class ThreadModeLoadBenchmark {
+
+	static final int MOVIES = 10_000;
+
+	public static void main(String[] args) throws Exception {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		
+		List<String> results = new ArrayList<>();
+		for (String mode : List.of("platform", "virtual")) {
+			results.add(run(mode, clients, seconds));
+		}
+		
+		System.out.printf("%n%d concurrent clients, %d seconds%n", clients, seconds);
+		System.out.printf("%10s %12s %12s %12s %12s %8s%n", "mode", "req/s", "p50 (ms)", "p99 (ms)", "max (ms)", "errors");
+		results.forEach(System.out::println);
+	}
+	
+	private static String run(String mode, int clients, int seconds) throws Exception {
+		SpringApplicationBuilder builder = new SpringApplicationBuilder(Application.class)
+				.properties("server.port=0", "logging.level.root=WARN", "movies.query-plan-check=off");
+		if (mode.equals("virtual")) {
+			builder.profiles("virtual");
+		}
+		
+		try (ConfigurableApplicationContext context = builder.run()) {
+			String baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+			HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+					.connectTimeout(Duration.ofSeconds(30)).build();
+			seed(httpClient, baseUri);
+			
+			long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+			long[][] latencies = new long[clients][];
+			AtomicLong errors = new AtomicLong();
+			
+			//every client is a virtual thread, so the client side never limits the concurrency
+			try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+				for (int c = 0; c < clients; c++) {
+					int client = c;
+					executor.submit(() -> latencies[client] = load(httpClient, baseUri, deadline, errors));
+				}
+			}
+			
+			long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+			return String.format("%10s %12.0f %12.2f %12.2f %12.2f %8d", mode, all.length / (double) seconds,
+					percentile(all, 0.50), percentile(all, 0.99), all.length == 0 ? 0 : all[all.length - 1] / 1e6, errors.get());
+		}
+	}
+	
+	static void seed(HttpClient httpClient, String baseUri) throws Exception {
+		ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		Random random = new Random(42);
+		List<Movie> movies = new ArrayList<>(MOVIES);
+		for (int i = 0; i < MOVIES; i++) {
+			movies.add(BenchmarkDatabase.randomMovie(random, i));
+		}
+		
+		httpClient.send(HttpRequest.newBuilder(URI.create(baseUri + "/api/movies/list"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(movies)))
+				.build(), HttpResponse.BodyHandlers.discarding());
+	}
+	
+	private static long[] load(HttpClient httpClient, String baseUri, long deadline, AtomicLong errors) {
+		long[] latencies = new long[1024];
+		int count = 0;
+		
+		while (System.nanoTime() < deadline) {
+			long id = 1 + ThreadLocalRandom.current().nextInt(MOVIES);
+			long start = System.nanoTime();
+			try {
+				HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUri + "/api/movies/" + id))
+						.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.discarding());
+				if (response.statusCode() != 200) {
+					errors.incrementAndGet();
+					continue;
+				}
+			} catch (Exception e) {
+				errors.incrementAndGet();
+				continue;
+			}
+			
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+			latencies[count++] = System.nanoTime() - start;
+		}
+		return Arrays.copyOf(latencies, count);
+	}
+	
+	static double percentile(long[] sorted, double percentile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return sorted[(int) Math.ceil(sorted.length * percentile) - 1] / 1e6;
+	}
+}
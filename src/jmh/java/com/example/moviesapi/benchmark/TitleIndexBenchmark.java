@@ -0,0 +1,84 @@
+package com.example.moviesapi.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.search.TitleIndex;
+import com.example.moviesapi.search.TitleIndex.TitleMatch;
+
+//TitleIndex.search over generated titles of 1 to 4 words. Common words are far more frequent than rare ones,
+//so one letter prefixes match a large share of the titles and hit the candidate cap
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class TitleIndexBenchmark {
+
+	private static final String[] SYLLABLES = {"ka", "lo", "mi", "ra", "te", "su", "no", "vi", "de", "an", "or", "el", "um", "is", "po", "gra"};
+	private static final int WORDS = 20_000;
+
+	@Param({"1000000"})
+	int titles;
+	
+	//one letter prefix, three letter prefix, and a whole word followed by a prefix
+	@Param({"k", "kal", "kalo t"})
+	String query;
+	
+	private TitleIndex titleIndex;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		String[] words = new String[WORDS];
+		for (int i = 0; i < WORDS; i++) {
+			StringBuilder word = new StringBuilder();
+			for (int syllables = 1 + random.nextInt(4); syllables > 0; syllables--) {
+				word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+			}
+			words[i] = word.toString();
+		}
+		
+		titleIndex = new TitleIndex(10_000, titles);
+		List<Movie> movies = new ArrayList<>(10_000);
+		
+		for (int i = 1; i <= titles; i++) {
+			StringBuilder title = new StringBuilder();
+			for (int n = 1 + random.nextInt(4); n > 0; n--) {
+				//skewed towards the first words of the vocabulary
+				title.append(words[random.nextInt(1 + random.nextInt(WORDS))]).append(' ');
+			}
+			movies.add(new Movie((long) i, title.toString().trim(), LocalDate.of(2000, 1, 1), BigDecimal.ONE, 1L));
+			
+			if (movies.size() == 10_000) {
+				titleIndex.addAll(movies);
+				movies.clear();
+			}
+		}
+		titleIndex.addAll(movies);
+	}
+	
+	@Benchmark
+	public List<TitleMatch> autocomplete() {
+		return titleIndex.search(query, 10);
+	}
+}
@@ -0,0 +1,116 @@
+package com.example.moviesapi.async;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.moviesapi.exceptions.ServiceOverloadedException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+//Bounded pool running the MovieService calls of the async API, so they never hold a request thread. At most
+//movies.async.queue-capacity calls wait for one of the movies.async.pool-size threads, further calls are rejected
+//with a ServiceOverloadedException. Reads not completed within movies.async.timeout fail the same way, and are
+//skipped if they are still queued by then. Writes are only rejected while they are still queued, once a write has
+//started its response waits for it, so a 503 always means the write didn't happen. The pool is published as the executor.* meters with the tag name=movieExecutor
+@Component
+public class MovieExecutor implements MeterBinder, DisposableBean {
+
+	private final ThreadPoolExecutor executor;
+	private final Duration timeout;
+	private final AtomicLong rejected = new AtomicLong();
+
+	public MovieExecutor(@Value("${movies.async.pool-size:16}") int poolSize,
+			@Value("${movies.async.queue-capacity:200}") int queueCapacity,
+			@Value("${movies.async.timeout:5s}") Duration timeout) {
+		this.timeout = timeout;
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				Thread.ofPlatform().name("movie-async-", 0).factory(),
+				(task, pool) -> {
+					rejected.incrementAndGet();
+					throw new ServiceOverloadedException("The service is overloaded, " + queueCapacity + " requests are already waiting");
+				});
+	}
+
+	public <T> CompletableFuture<T> supply(Supplier<T> call) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		executor.execute(() -> {
+			if (result.isDone()) {
+				return;
+			}
+			try {
+				result.complete(call.get());
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		});
+		
+		return result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).exceptionally(e -> {
+			if (e instanceof TimeoutException) {
+				throw new CompletionException(new ServiceOverloadedException("The request didn't complete within " + timeout.toMillis() + " ms"));
+			}
+			throw e instanceof CompletionException completionException ? completionException : new CompletionException(e);
+		});
+	}
+
+	//Like supply, but the timeout only applies while the call waits in the queue. Whichever comes first, the
+	//thread starting the call or the timeout, claims it, so a write is either rejected or run to its end
+	public <T> CompletableFuture<T> supplyWrite(Supplier<T> call) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		AtomicBoolean claimed = new AtomicBoolean();
+		executor.execute(() -> {
+			if (!claimed.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				result.complete(call.get());
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		});
+		
+		CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+			if (claimed.compareAndSet(false, true)) {
+				result.completeExceptionally(new ServiceOverloadedException("The request didn't start within " + timeout.toMillis() + " ms"));
+			}
+		});
+		return result;
+	}
+
+	//Runs a task without a timeout, such as the streaming of a response
+	public void execute(Runnable task) {
+		executor.execute(task);
+	}
+
+	public int queued() {
+		return executor.getQueue().size();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		new ExecutorServiceMetrics(executor, "movieExecutor", Tags.empty()).bindTo(registry);
+		FunctionCounter.builder("movies.async.rejected", rejected, AtomicLong::get)
+				.description("Async calls rejected because the queue was full").register(registry);
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdown();
+	}
+}
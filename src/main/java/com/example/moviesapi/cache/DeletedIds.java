@@ -0,0 +1,26 @@
+package com.example.moviesapi.cache;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+//Ids of the deleted movies, kept by the in-memory copies of the catalog so a write that committed before a delete
+//but reaches them after it doesn't bring the movie back. Ids are handed out in sequence and never reused, so one bit
+//per id up to the highest deleted one is enough; ids past the int range go to a set. Callers hold their own lock
+public class DeletedIds {
+
+	private final BitSet ids = new BitSet();
+	private final Set<Long> largeIds = new HashSet<>();
+
+	public void add(long id) {
+		if (id >= 0 && id <= Integer.MAX_VALUE) {
+			ids.set((int) id);
+		} else {
+			largeIds.add(id);
+		}
+	}
+
+	public boolean contains(long id) {
+		return id >= 0 && id <= Integer.MAX_VALUE ? ids.get((int) id) : largeIds.contains(id);
+	}
+}
@@ -0,0 +1,97 @@
+package com.example.moviesapi.cache;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.moviesapi.exceptions.IdempotencyKeyReusedException;
+import com.example.moviesapi.exceptions.PartialWriteException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+//Bounded, expiring store of the results of requests sent with an Idempotency-Key header. The first request with a key
+//runs the action, retries and concurrent duplicates get its result without running it again. Failed actions aren't kept,
+//so they can be retried with the same key, except for a list that was partly created, whose retries get the same failure
+//instead of creating the first movies twice. Its statistics are published as the cache.* meters with the tag
+//cache=idempotencyKeys, where hits are replayed requests
+@Component
+public class IdempotencyStore implements MeterBinder {
+
+	private record Entry(byte[] fingerprint, CompletableFuture<Object> result) {
+	}
+	
+	private final ObjectMapper objectMapper;
+	private final Cache<String, Entry> entries;
+
+	public IdempotencyStore(ObjectMapper objectMapper,
+			@Value("${movies.idempotency.maximum-size:10000}") long maximumSize,
+			@Value("${movies.idempotency.ttl:24h}") Duration ttl) {
+		this.objectMapper = objectMapper;
+		this.entries = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build();
+	}
+
+	//Keys are scoped by endpoint, and a key already used with a different request body is rejected
+	@SuppressWarnings("unchecked")
+	public <T> T execute(String scope, String key, Object request, Supplier<T> action) {
+		String scopedKey = scope + " " + key;
+		byte[] fingerprint = fingerprint(request);
+		Entry created = new Entry(fingerprint, new CompletableFuture<>());
+		Entry entry = entries.get(scopedKey, k -> created);
+		
+		if (entry != created) {
+			if (!MessageDigest.isEqual(entry.fingerprint(), fingerprint)) {
+				throw new IdempotencyKeyReusedException(key);
+			}
+			try {
+				return (T) entry.result().join();
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof RuntimeException cause ? cause : e;
+			}
+		}
+		
+		try {
+			T result = action.get();
+			created.result().complete(result);
+			return result;
+		} catch (Throwable e) {
+			if (!(e instanceof PartialWriteException)) {
+				entries.asMap().remove(scopedKey, created);
+			}
+			created.result().completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private byte[] fingerprint(Object request) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+		} catch (JsonProcessingException | NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Cannot fingerprint the request", e);
+		}
+	}
+
+	public long size() {
+		return entries.estimatedSize();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, entries, "idempotencyKeys");
+	}
+}
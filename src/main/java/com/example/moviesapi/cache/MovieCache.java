@@ -0,0 +1,109 @@
+package com.example.moviesapi.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.moviesapi.model.Movie;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+//Bounded read-through cache of movies by id. Missing movies are cached as empty optionals
+//with a shorter time to live, so repeated lookups of unknown ids don't reach the database.
+//Its statistics are published as the cache.* meters with the tag cache=movies
+@Component
+public class MovieCache implements MeterBinder {
+
+	private final Cache<Long, Optional<Movie>> cache;
+
+	public MovieCache(@Value("${movies.cache.maximum-size:10000}") long maximumSize,
+			@Value("${movies.cache.ttl:10m}") Duration ttl,
+			@Value("${movies.cache.negative-ttl:5s}") Duration negativeTtl) {
+		
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfter(new Expiry<Long, Optional<Movie>>() {
+					@Override
+					public long expireAfterCreate(Long id, Optional<Movie> movie, long currentTime) {
+						return (movie.isPresent() ? ttl : negativeTtl).toNanos();
+					}
+
+					@Override
+					public long expireAfterUpdate(Long id, Optional<Movie> movie, long currentTime, long currentDuration) {
+						return expireAfterCreate(id, movie, currentTime);
+					}
+
+					@Override
+					public long expireAfterRead(Long id, Optional<Movie> movie, long currentTime, long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.recordStats()
+				.build();
+	}
+
+	//Returns the cached movie, or loads it once with the loader while concurrent callers for the same id wait for it
+	public Optional<Movie> get(Long id, Function<Long, Optional<Movie>> loader) {
+		return cache.get(id, loader);
+	}
+
+	//Returns null when the id isn't cached, or an empty optional when it is cached as missing
+	public Optional<Movie> getIfPresent(Long id) {
+		return cache.getIfPresent(id);
+	}
+
+	//Writes can reach the cache out of order, so a cached movie is never replaced by an older version
+	public void put(Movie movie) {
+		cache.asMap().compute(movie.getId(), (id, cached) ->
+				cached != null && cached.isPresent() && version(cached.get()) > version(movie) ? cached : Optional.of(movie));
+	}
+
+	private static long version(Movie movie) {
+		return movie.getVersion() == null ? 0 : movie.getVersion();
+	}
+
+	//Caches a movie or a missing id read outside of get, unless a write cached a newer state of it in the meantime
+	public void putIfAbsent(Long id, Optional<Movie> movie) {
+		cache.asMap().putIfAbsent(id, movie);
+	}
+
+	public void putMissing(Long id) {
+		cache.put(id, Optional.empty());
+	}
+
+	public void invalidate(Long id) {
+		cache.invalidate(id);
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	//Hit, miss and eviction counters since startup
+	public CacheStats stats() {
+		return cache.stats();
+	}
+	
+	public long size() {
+		return cache.estimatedSize();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, cache, "movies");
+	}
+
+	//Runs pending maintenance such as size based evictions
+	void cleanUp() {
+		cache.cleanUp();
+	}
+}
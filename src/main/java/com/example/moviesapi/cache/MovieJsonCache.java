@@ -0,0 +1,129 @@
+package com.example.moviesapi.cache;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.moviesapi.model.Movie;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+//Bounded cache of the JSON bodies of GET /{id} and GET /launchDate/{date}, kept as UTF-8 bytes ready to be written,
+//so hot reads skip Jackson entirely. Movies are serialized once, with the application ObjectMapper, on the first read
+//after a change. Its statistics are published as the cache.* meters with the tags cache=movieJsonById and movieJsonByLaunchDate
+@Component
+public class MovieJsonCache implements MeterBinder {
+
+	public record SerializedMovie(Long id, Long version, byte[] json) {
+	}
+	
+	private record SerializedMovies(long[] ids, byte[] json) {
+	}
+	
+	private final ObjectMapper objectMapper;
+	private final Cache<Long, SerializedMovie> byId;
+	private final Cache<LocalDate, SerializedMovies> byLaunchDate;
+	
+	//Bumped by every write before it invalidates, a body serialized from a read that overlapped a write isn't cached
+	private final AtomicLong writes = new AtomicLong();
+
+	public MovieJsonCache(ObjectMapper objectMapper,
+			@Value("${movies.json-cache.maximum-size:10000}") long maximumSize,
+			@Value("${movies.json-cache.launch-date.maximum-size:1000}") long launchDateMaximumSize) {
+		this.objectMapper = objectMapper;
+		this.byId = Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build();
+		this.byLaunchDate = Caffeine.newBuilder().maximumSize(launchDateMaximumSize).recordStats().build();
+	}
+
+	public SerializedMovie getById(Long id, Function<Long, Movie> loader) {
+		SerializedMovie cached = byId.getIfPresent(id);
+		if (cached != null) {
+			return cached;
+		}
+		
+		long stamp = writes.get();
+		Movie movie = loader.apply(id);
+		SerializedMovie serialized = new SerializedMovie(movie.getId(), movie.getVersion(), serialize(movie));
+		//computing under the key lock orders this put with the invalidation of a concurrent write
+		byId.asMap().compute(id, (key, current) -> writes.get() == stamp ? serialized : current);
+		return serialized;
+	}
+
+	public byte[] getByLaunchDate(LocalDate launchDate, Function<LocalDate, List<Movie>> loader) {
+		SerializedMovies cached = byLaunchDate.getIfPresent(launchDate);
+		if (cached != null) {
+			return cached.json();
+		}
+		
+		long stamp = writes.get();
+		List<Movie> movies = loader.apply(launchDate);
+		SerializedMovies serialized = new SerializedMovies(movies.stream().mapToLong(Movie::getId).toArray(), serialize(movies));
+		byLaunchDate.asMap().compute(launchDate, (key, current) -> writes.get() == stamp ? serialized : current);
+		return serialized.json();
+	}
+
+	//An updated movie may have left its launch date, so every cached launch date listing it is dropped too
+	public void invalidate(Movie movie) {
+		writes.incrementAndGet();
+		byId.invalidate(movie.getId());
+		byLaunchDate.invalidate(movie.getLaunchDate());
+		removeFromLaunchDates(movie.getId());
+	}
+
+	//New movies only change the listings of their launch dates
+	public void invalidateCreated(List<Movie> movies) {
+		writes.incrementAndGet();
+		for (Movie movie : movies) {
+			byId.invalidate(movie.getId());
+			byLaunchDate.invalidate(movie.getLaunchDate());
+		}
+	}
+
+	public void invalidate(Long id) {
+		writes.incrementAndGet();
+		byId.invalidate(id);
+		removeFromLaunchDates(id);
+	}
+
+	public void invalidateAll() {
+		writes.incrementAndGet();
+		byId.invalidateAll();
+		byLaunchDate.invalidateAll();
+	}
+
+	private void removeFromLaunchDates(Long id) {
+		byLaunchDate.asMap().values().removeIf(movies -> {
+			for (long cachedId : movies.ids()) {
+				if (cachedId == id) {
+					return true;
+				}
+			}
+			return false;
+		});
+	}
+
+	private byte[] serialize(Object value) {
+		try {
+			return objectMapper.writeValueAsBytes(value);
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, byId, "movieJsonById");
+		CaffeineCacheMetrics.monitor(registry, byLaunchDate, "movieJsonByLaunchDate");
+	}
+}
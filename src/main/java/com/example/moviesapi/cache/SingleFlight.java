@@ -0,0 +1,73 @@
+package com.example.moviesapi.cache;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+//Coalesces concurrent identical reads. The first caller for a key runs the call, callers arriving while it is
+//in flight wait for it and share its result or its exception. Nothing is kept once the call completes.
+//A list result is shared as an unmodifiable copy, so no caller can change what the others get.
+//Keys of different types never match, so lookups by different keys can share the map.
+//Coalesced calls are counted by movies.reads.coalesced
+@Component
+public class SingleFlight implements MeterBinder {
+
+	private final ConcurrentHashMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong coalesced = new AtomicLong();
+
+	@SuppressWarnings("unchecked")
+	public <T> T execute(Object key, Supplier<T> call) {
+		CompletableFuture<Object> created = new CompletableFuture<>();
+		CompletableFuture<Object> running = inFlight.putIfAbsent(key, created);
+		
+		if (running != null) {
+			coalesced.incrementAndGet();
+			try {
+				return (T) running.join();
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof RuntimeException cause ? cause : e;
+			}
+		}
+		
+		try {
+			T result = call.get();
+			if (result instanceof List<?> list) {
+				result = (T) List.copyOf(list);
+			}
+			created.complete(result);
+			return result;
+		} catch (RuntimeException | Error e) {
+			created.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, created);
+		}
+	}
+
+	//Called after a write, so later reads don't join a call that may have read the data from before the write
+	public void forgetAll() {
+		inFlight.clear();
+	}
+
+	public long coalesced() {
+		return coalesced.get();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("movies.reads.coalesced", coalesced, AtomicLong::get)
+				.description("Reads that shared the result of an identical read already in flight").register(registry);
+		Gauge.builder("movies.reads.in-flight", inFlight, ConcurrentHashMap::size)
+				.description("Distinct reads in flight").register(registry);
+	}
+}
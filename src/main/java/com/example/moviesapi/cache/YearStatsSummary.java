@@ -0,0 +1,187 @@
+package com.example.moviesapi.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.model.YearStats;
+
+//In-memory copy of the per-year aggregates, so reading them costs O(years) instead of a scan of the table.
+//Created movies are added to it as they are inserted, and updates and deletes report the previous values of the
+//rows they change, which are taken out of the totals of their year. Removing the minimum or the maximum of a year
+//leaves its next one unknown, so only that year is read again from the database on the next read.
+//Loads that overlap a write are returned but not kept, since they may or may not include that write
+@Component
+public class YearStatsSummary {
+
+	private final boolean enabled;
+	
+	//null when it has to be loaded again
+	private Map<Integer, YearStats> years;
+	//years whose stats in years are out of date
+	private final Set<Integer> staleYears = new HashSet<>();
+	private long writesStarted;
+	private int writesInProgress;
+
+	public YearStatsSummary(@Value("${movies.analytics.summary:true}") boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	//Updates only need to report the rows they replace while the summary is kept
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	//loader reads every year, yearLoader a single one
+	public List<YearStats> get(Supplier<List<YearStats>> loader, IntFunction<Optional<YearStats>> yearLoader) {
+		if (!enabled) {
+			return loader.get();
+		}
+		
+		long writesBeforeLoad;
+		Set<Integer> reloadedYears;
+		synchronized (this) {
+			if (years != null && staleYears.isEmpty()) {
+				return List.copyOf(years.values());
+			}
+			//a write in progress may commit before or after the load reads the table
+			writesBeforeLoad = writesInProgress == 0 ? writesStarted : -1;
+			reloadedYears = years == null ? null : Set.copyOf(staleYears);
+		}
+		
+		if (reloadedYears == null) {
+			List<YearStats> loaded = loader.get();
+			
+			synchronized (this) {
+				if (years == null && writesStarted == writesBeforeLoad) {
+					years = new TreeMap<>();
+					loaded.forEach(stats -> years.put(stats.year(), stats));
+				}
+			}
+			return loaded;
+		}
+		
+		Map<Integer, Optional<YearStats>> reloaded = new HashMap<>();
+		reloadedYears.forEach(year -> reloaded.put(year, yearLoader.apply(year)));
+		
+		synchronized (this) {
+			Map<Integer, YearStats> result = years != null ? new TreeMap<>(years) : new TreeMap<>();
+			reloaded.forEach((year, stats) -> stats.ifPresentOrElse(loaded -> result.put(year, loaded), () -> result.remove(year)));
+			if (years != null && writesStarted == writesBeforeLoad) {
+				years = result;
+				staleYears.removeAll(reloadedYears);
+			}
+			return List.copyOf(result.values());
+		}
+	}
+
+	//Runs a write that inserts movies, created returns the inserted movies from its result
+	public <T> T create(Supplier<T> write, Function<T, Collection<Movie>> created) {
+		if (!enabled) {
+			return write.get();
+		}
+		
+		start();
+		try {
+			T result = write.get();
+			add(created.apply(result));
+			return result;
+			
+		} catch (RuntimeException e) {
+			//the write may have been partially applied
+			invalidate();
+			throw e;
+			
+		} finally {
+			finish();
+		}
+	}
+
+	//Runs a write that updates or deletes movies. The write reports the rows it changed with updated and deleted
+	//once they are committed, before it returns
+	public <T> T change(Supplier<T> write) {
+		if (!enabled) {
+			return write.get();
+		}
+		
+		start();
+		try {
+			return write.get();
+			
+		} catch (RuntimeException e) {
+			//some of the changes may not have been reported
+			invalidate();
+			throw e;
+			
+		} finally {
+			finish();
+		}
+	}
+
+	public synchronized void updated(Movie previous, Movie updated) {
+		remove(previous);
+		add(List.of(updated));
+	}
+
+	public synchronized void deleted(Movie movie) {
+		remove(movie);
+	}
+
+	public synchronized void deletedAll() {
+		if (years != null) {
+			years.clear();
+			staleYears.clear();
+		}
+	}
+
+	private synchronized void start() {
+		writesStarted++;
+		writesInProgress++;
+	}
+
+	private synchronized void finish() {
+		writesInProgress--;
+	}
+
+	private synchronized void add(Collection<Movie> movies) {
+		if (years != null) {
+			movies.stream()
+					.filter(movie -> !staleYears.contains(movie.getLaunchDate().getYear()))
+					.forEach(movie -> years.merge(movie.getLaunchDate().getYear(), YearStats.of(movie),
+							(stats, added) -> stats.plus(movie)));
+		}
+	}
+
+	//Changes of the same movie can be reported out of order, a removal that doesn't fit inside the stats of
+	//its year marks the year stale as well
+	private void remove(Movie movie) {
+		int year = movie.getLaunchDate().getYear();
+		if (years == null || staleYears.contains(year)) {
+			return;
+		}
+		
+		Optional<YearStats> left = Optional.ofNullable(years.get(year)).flatMap(stats -> stats.minus(movie));
+		if (left.isPresent()) {
+			years.put(year, left.get());
+		} else {
+			staleYears.add(year);
+		}
+	}
+
+	private synchronized void invalidate() {
+		years = null;
+		staleYears.clear();
+	}
+}
@@ -0,0 +1,145 @@
+package com.example.moviesapi.changes;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.moviesapi.exceptions.ChangesExpiredException;
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.model.MovieChange;
+import com.example.moviesapi.model.MovieChange.Type;
+import com.example.moviesapi.model.MovieChanges;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+//Ordered, in-memory log of the committed writes, numbered from 1 by a sequence that only grows. Only the last
+//movies.changes.capacity changes are kept in a ring buffer, reading from an older sequence fails with a
+//ChangesExpiredException so the consumer knows it has to read the movies again. The log starts empty on every
+//startup, like the in-memory database, so sequences are only meaningful together with the epoch of the log, which
+//is the startup time; reading after a sequence of another epoch fails the same way. The service appends the changes
+//while it still holds its commit order lock, so the sequences follow the order in which the writes committed
+@Component
+public class ChangeLog implements MeterBinder {
+
+	private final MovieChange[] ring;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition appended = lock.newCondition();
+	private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+	private long last;
+
+	public ChangeLog(@Value("${movies.changes.capacity:10000}") int capacity) {
+		this.ring = new MovieChange[capacity];
+	}
+
+	public void created(List<Movie> movies) {
+		lock.lock();
+		try {
+			Instant now = Instant.now();
+			for (Movie movie : movies) {
+				append(new MovieChange(last + 1, Type.CREATED, movie.getId(), movie.getVersion(), movie, now));
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void updated(Movie movie) {
+		append(Type.UPDATED, movie.getId(), movie.getVersion(), movie);
+	}
+
+	//the version of the deleted row, so a consumer can tell the delete apart from an older write of the movie
+	public void deleted(Movie movie) {
+		append(Type.DELETED, movie.getId(), movie.getVersion(), null);
+	}
+
+	public void deletedAll() {
+		append(Type.DELETED_ALL, null, null, null);
+	}
+
+	private void append(Type type, Long id, Long version, Movie movie) {
+		lock.lock();
+		try {
+			append(new MovieChange(last + 1, type, id, version, movie, Instant.now()));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void append(MovieChange change) {
+		last = change.sequence();
+		ring[(int) (last % ring.length)] = change;
+		appended.signalAll();
+	}
+
+	//Returns up to limit changes after the given sequence of the given epoch, 0 reads from the start of the log
+	public MovieChanges since(String epoch, long since, int limit) {
+		lock.lock();
+		try {
+			return read(epoch, since, limit);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Like since, but waits up to the timeout for a change when there are none yet
+	public MovieChanges await(String epoch, long since, int limit, long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lock();
+		try {
+			while (last == since && nanos > 0) {
+				nanos = appended.awaitNanos(nanos);
+			}
+			return read(epoch, since, limit);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private MovieChanges read(String epoch, long since, int limit) {
+		if (since > 0 && !this.epoch.equals(epoch)) {
+			throw new ChangesExpiredException(epoch, this.epoch, last);
+		}
+		long oldest = Math.max(1, last - ring.length + 1);
+		//a sequence ahead of the log was handed out before a restart
+		if (since < oldest - 1 || since > last) {
+			throw new ChangesExpiredException(since, oldest, last);
+		}
+		
+		long until = Math.min(last, since + Math.max(limit, 1));
+		List<MovieChange> changes = new ArrayList<>((int) (until - since));
+		for (long sequence = since + 1; sequence <= until; sequence++) {
+			changes.add(ring[(int) (sequence % ring.length)]);
+		}
+		return new MovieChanges(this.epoch, changes, until);
+	}
+
+	public String epoch() {
+		return epoch;
+	}
+
+	public long last() {
+		lock.lock();
+		try {
+			return last;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("movies.changes.appended", this, ChangeLog::last)
+				.description("Changes appended to the change log").register(registry);
+		Gauge.builder("movies.changes.capacity", ring, r -> r.length)
+				.description("Changes kept by the change log").register(registry);
+	}
+}
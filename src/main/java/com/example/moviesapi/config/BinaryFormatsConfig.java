@@ -0,0 +1,27 @@
+package com.example.moviesapi.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+//CBOR (application/cbor) and Smile (application/x-jackson-smile) bodies, chosen with the Accept header.
+//They replace the converters Spring MVC would add with default mappers, so both formats are written
+//with the same modules and settings as the application JSON ObjectMapper
+@Configuration(proxyBeanMethods = false)
+public class BinaryFormatsConfig {
+
+	@Bean
+	public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(ObjectMapper objectMapper) {
+		return new MappingJackson2CborHttpMessageConverter(objectMapper.copyWith(new CBORFactory()));
+	}
+
+	@Bean
+	public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(ObjectMapper objectMapper) {
+		return new MappingJackson2SmileHttpMessageConverter(objectMapper.copyWith(new SmileFactory()));
+	}
+}
@@ -0,0 +1,42 @@
+package com.example.moviesapi.config;
+
+import java.util.Properties;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import com.example.moviesapi.jdbc.StatementCacheStats;
+import com.example.moviesapi.jdbc.StatementCachingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.util.DriverDataSource;
+
+//Hikari pool configured from the spring.datasource.hikari properties, like the auto-configured one,
+//whose physical connections cache their prepared statements (movies.jdbc.statement-cache-size per connection)
+@Configuration(proxyBeanMethods = false)
+public class DataSourceConfig {
+
+	@Bean
+	public StatementCacheStats statementCacheStats() {
+		return new StatementCacheStats();
+	}
+	
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource dataSource(DataSourceProperties properties, StatementCacheStats statementCacheStats,
+			@Value("${movies.jdbc.statement-cache-size:32}") int statementCacheSize) {
+		
+		DriverDataSource driverDataSource = new DriverDataSource(properties.determineUrl(), properties.determineDriverClassName(),
+				new Properties(), properties.determineUsername(), properties.determinePassword());
+		
+		HikariDataSource dataSource = new HikariDataSource();
+		dataSource.setDataSource(new StatementCachingDataSource(driverDataSource, statementCacheSize, statementCacheStats));
+		if (StringUtils.hasText(properties.getName())) {
+			dataSource.setPoolName(properties.getName());
+		}
+		return dataSource;
+	}
+}
@@ -0,0 +1,19 @@
+package com.example.moviesapi.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.moviesapi.web.MeteredJsonHttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+//Replaces the auto-configured Jackson converter, so every JSON response body is timed and measured
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+	@Bean
+	public MeteredJsonHttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper, MeterRegistry registry) {
+		return new MeteredJsonHttpMessageConverter(objectMapper, registry);
+	}
+}
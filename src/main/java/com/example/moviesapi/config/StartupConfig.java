@@ -0,0 +1,17 @@
+package com.example.moviesapi.config;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+//With spring.main.lazy-initialization=true (the prod profile) beans are only created on first use, but the
+//initializers that load the title index and the snapshot must still run before the first request is accepted
+@Configuration(proxyBeanMethods = false)
+public class StartupConfig {
+
+	@Bean
+	static LazyInitializationExcludeFilter startupInitializers() {
+		return LazyInitializationExcludeFilter.forBeanTypes(SmartInitializingSingleton.class);
+	}
+}
@@ -0,0 +1,123 @@
+package com.example.moviesapi.controller;
+import com.example.moviesapi.async.MovieExecutor;
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.model.MoviePage;
+import com.example.moviesapi.service.MovieService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.PastOrPresent;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+//Async variant of the movie API. The request thread is released as soon as the MovieService call is handed to
+//MovieExecutor, and the response is written once the call completes. When the executor is full or a call takes
+//too long the request is answered with 503 Service Unavailable; writes are only timed out while they wait in the queue.
+//Writes take the same Idempotency-Key, If-Match and group commit paths as the blocking API
+@RestController
+@RequestMapping("/api/async/movies")
+public class AsyncMovieController {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final MovieService movieService;
+    private final MovieWrites movieWrites;
+    private final MovieExecutor movieExecutor;
+    private final ObjectMapper objectMapper;
+
+    AsyncMovieController(MovieService movieService, MovieWrites movieWrites, MovieExecutor movieExecutor, ObjectMapper objectMapper) {
+        this.movieService = movieService;
+        this.movieWrites = movieWrites;
+        this.movieExecutor = movieExecutor;
+        this.objectMapper = objectMapper;
+    }
+
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping("")
+    public CompletableFuture<Movie> create(@Valid @RequestBody Movie movie,
+    		@RequestHeader(value = MovieController.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return movieExecutor.supplyWrite(() -> movieWrites.create(movie, idempotencyKey));
+    }
+
+    @GetMapping(value = "/{id}")
+    public CompletableFuture<ResponseEntity<Movie>> findById(@PathVariable Long id) {
+        return movieExecutor.supply(() -> movieService.findById(id))
+        		.thenApply(movie -> ResponseEntity.ok().eTag(MovieController.eTag(movie)).body(movie));
+    }
+
+    //Streams the table as a JSON array from an executor thread, in chunks of 64 KB, while the rows are read
+    @GetMapping("")
+    public ResponseEntity<ResponseBodyEmitter> findAll() {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        
+        movieExecutor.execute(() -> {
+        	try {
+        		ByteArrayOutputStream chunk = new ByteArrayOutputStream(CHUNK_SIZE);
+        		JsonGenerator generator = objectMapper.getFactory().createGenerator(chunk);
+        		generator.writeStartArray();
+        		
+        		movieService.streamAll(movie -> {
+        			try {
+        				generator.writeObject(movie);
+        				if (chunk.size() >= CHUNK_SIZE) {
+        					generator.flush();
+        					emitter.send(chunk.toByteArray(), MediaType.APPLICATION_JSON);
+        					chunk.reset();
+        				}
+        			} catch (IOException e) {
+        				throw new UncheckedIOException(e);
+        			}
+        		});
+        		
+        		generator.writeEndArray();
+        		generator.flush();
+        		emitter.send(chunk.toByteArray(), MediaType.APPLICATION_JSON);
+        		emitter.complete();
+        	} catch (IOException | RuntimeException e) {
+        		emitter.completeWithError(e);
+        	}
+        });
+        
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(emitter);
+    }
+
+    @GetMapping("/page")
+    public CompletableFuture<MoviePage> findPage(@RequestParam(required = false) Long after,
+    		@RequestParam(defaultValue = "50") int limit) {
+        return movieExecutor.supply(() -> movieService.findPage(after, limit));
+    }
+
+    @GetMapping(value = "/launchDate/{launchDate}")
+    public CompletableFuture<List<Movie>> findByLaunchDate(@PastOrPresent @PathVariable LocalDate launchDate) {
+        return movieExecutor.supply(() -> movieService.findByLaunchDate(launchDate));
+    }
+
+    @PutMapping(value = "/{id}")
+    public CompletableFuture<ResponseEntity<Movie>> update(@Valid @RequestBody Movie movie, @PathVariable Long id,
+    		@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return movieExecutor.supplyWrite(() -> movieWrites.update(movie, id, ifMatch))
+        		.thenApply(updatedMovie -> ResponseEntity.ok().eTag(MovieController.eTag(updatedMovie)).body(updatedMovie));
+    }
+
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @DeleteMapping(value = "/{id}")
+    public CompletableFuture<Void> delete(@PathVariable Long id) {
+        return movieExecutor.supplyWrite(() -> {
+        	movieService.delete(id);
+        	return null;
+        });
+    }
+}
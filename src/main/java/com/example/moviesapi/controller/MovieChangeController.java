@@ -0,0 +1,108 @@
+package com.example.moviesapi.controller;
+import com.example.moviesapi.changes.ChangeLog;
+import com.example.moviesapi.exceptions.InvalidMovieQueryException;
+import com.example.moviesapi.model.MovieChange;
+import com.example.moviesapi.model.MovieChanges;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Change feed of the movies, so consumers can follow the writes instead of polling GET /api/movies.
+//Both endpoints resume after a sequence number of an epoch of the change log and fail with 410 Gone once it has
+//left the change log or belongs to another epoch
+@RestController
+@RequestMapping("/api/movies/changes")
+public class MovieChangeController {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ChangeLog changeLog;
+    private final Duration heartbeat;
+
+    MovieChangeController(ChangeLog changeLog, @Value("${movies.changes.heartbeat:15s}") Duration heartbeat) {
+        this.changeLog = changeLog;
+        this.heartbeat = heartbeat;
+    }
+
+    @GetMapping("")
+    public MovieChanges findChanges(@RequestParam(required = false) String epoch,
+    		@RequestParam(defaultValue = "0") long since,
+    		@RequestParam(defaultValue = "500") int limit) {
+        if (since > 0 && epoch == null) {
+        	throw new InvalidMovieQueryException(Map.of("epoch", "The epoch of the sequence is required to resume after it"));
+        }
+        return changeLog.since(epoch, since, Math.min(limit, BATCH_SIZE));
+    }
+
+    //Server-Sent Events stream of the changes after "since", or after the Last-Event-ID sent by a reconnecting client.
+    //Every event carries its epoch and sequence as the event id, "<epoch>-<sequence>". Each subscriber is served by its own virtual thread, which sends
+    //a comment as heartbeat while there are no changes, so closed connections are noticed
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) String epoch,
+    		@RequestParam(required = false) Long since,
+    		@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        String epochOfStart = epoch;
+        long start;
+        if (lastEventId != null) {
+        	int separator = lastEventId.lastIndexOf('-');
+        	try {
+        		start = Long.parseLong(lastEventId.substring(separator + 1));
+        	} catch (NumberFormatException e) {
+        		throw new InvalidMovieQueryException(Map.of("Last-Event-ID", "The event id must be <epoch>-<sequence>"));
+        	}
+        	epochOfStart = separator > 0 ? lastEventId.substring(0, separator) : null;
+        } else if (since != null) {
+        	start = since;
+        } else {
+        	epochOfStart = changeLog.epoch();
+        	start = changeLog.last();
+        }
+        if (start > 0 && epochOfStart == null) {
+        	throw new InvalidMovieQueryException(Map.of("epoch", "The epoch of the sequence is required to resume after it"));
+        }
+        //the stream reads from the start of this epoch's log when it starts at 0
+        String streamEpoch = start > 0 ? epochOfStart : changeLog.epoch();
+        //fails with 410 Gone before the stream starts
+        changeLog.since(streamEpoch, start, 1);
+        
+        SseEmitter emitter = new SseEmitter(0L);
+        AtomicBoolean closed = new AtomicBoolean();
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+        
+        Thread.ofVirtual().name("movie-changes-" + start).start(() -> {
+        	long sequence = start;
+        	try {
+        		while (!closed.get()) {
+        			MovieChanges changes = changeLog.await(streamEpoch, sequence, BATCH_SIZE, heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+        			if (changes.changes().isEmpty()) {
+        				emitter.send(SseEmitter.event().comment("heartbeat"));
+        				continue;
+        			}
+        			for (MovieChange change : changes.changes()) {
+        				emitter.send(SseEmitter.event()
+        						.id(changes.epoch() + "-" + change.sequence())
+        						.name(change.type().name())
+        						.data(change, MediaType.APPLICATION_JSON));
+        			}
+        			sequence = changes.last();
+        		}
+        	} catch (IOException | InterruptedException e) {
+        		//the client went away
+        	} catch (RuntimeException e) {
+        		//the consumer fell behind the change log, it reconnects and gets 410 Gone
+        		emitter.completeWithError(e);
+        	}
+        });
+        
+        return emitter;
+    }
+}
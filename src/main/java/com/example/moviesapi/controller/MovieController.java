@@ -1,57 +1,272 @@
 package com.example.moviesapi.controller;
+import com.example.moviesapi.cache.MovieJsonCache;
+import com.example.moviesapi.cache.MovieJsonCache.SerializedMovie;
+import com.example.moviesapi.exceptions.InvalidMovieListException;
+import com.example.moviesapi.exceptions.InvalidMovieQueryException;
+import com.example.moviesapi.model.BulkOutcome;
+import com.example.moviesapi.model.ImportReport;
 import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.model.MovieBatch;
+import com.example.moviesapi.model.MoviePage;
+import com.example.moviesapi.model.MovieQuery;
+import com.example.moviesapi.model.MovieQuery.SortField;
+import com.example.moviesapi.model.YearStats;
+import com.example.moviesapi.search.TitleIndex.TitleMatch;
+import com.example.moviesapi.service.MovieImportService;
 import com.example.moviesapi.service.MovieService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import jakarta.validation.constraints.PastOrPresent;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/movies")
 public class MovieController {
 
+    private static final Map<String, SortField> SORT_FIELDS = Map.of(
+    		"id", SortField.ID,
+    		"launchDate", SortField.LAUNCH_DATE,
+    		"rating", SortField.RATING,
+    		"revenue", SortField.REVENUE);
+
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int MAX_BATCH_IDS = 1000;
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
     private final MovieService movieService;
+    private final MovieImportService movieImportService;
+    private final MovieJsonCache movieJsonCache;
+    private final MovieWrites movieWrites;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
-    MovieController(MovieService movieService) {
+    MovieController(MovieService movieService, MovieImportService movieImportService, MovieJsonCache movieJsonCache,
+    		MovieWrites movieWrites, ObjectMapper objectMapper, Validator validator) {
         this.movieService = movieService;
+        this.movieImportService = movieImportService;
+        this.movieJsonCache = movieJsonCache;
+        this.movieWrites = movieWrites;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
     }
 
+    //In group commit mode the movie is inserted together with the ones posted around the same time.
+    //With an Idempotency-Key header, retries of the same request get the movie created by the first one
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("")
-    public Movie create(@Valid @RequestBody Movie movie) {
-        return movieService.create(movie);
+    public Movie create(@Valid @RequestBody Movie movie,
+    		@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return movieWrites.create(movie, idempotencyKey);
     }
 
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("/list")
-    public List<Movie> createAll(@RequestBody List<@Valid Movie> movies) {
-        return movieService.createAll(movies);
+    public List<Movie> createAll(@RequestBody List<@Valid Movie> movies,
+    		@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return movieWrites.createAll(movies, idempotencyKey);
     }
 
+    //Unlike /list the body is read while it is uploaded, invalid movies are reported instead of failing the whole import
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ImportReport importMovies(InputStream body) throws IOException {
+        return movieImportService.importMovies(body);
+    }
+
+    //The movie version is exposed as a strong ETag, so Spring answers If-None-Match requests
+    //with the current ETag with 304 Not Modified. The body is written from the cached JSON of the movie
     @GetMapping(value = "/{id}")
-    public Movie findById(@PathVariable Long id) {
-        return movieService.findById(id);
+    public ResponseEntity<byte[]> findById(@PathVariable Long id) {
+        SerializedMovie movie = movieJsonCache.getById(id, movieService::findById);
+        return ResponseEntity.ok().eTag(eTag(movie.id(), movie.version()))
+        		.contentType(MediaType.APPLICATION_JSON).body(movie.json());
     }
 
+    //Looks up several movies in one request, such as ids=3,1,2. Ids without a movie are listed in missing
+    @GetMapping("/batch")
+    public MovieBatch findAllById(@RequestParam List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_IDS || ids.contains(null)) {
+        	throw new InvalidMovieQueryException(Map.of("ids", "Ids must be a list of 1 to " + MAX_BATCH_IDS + " movie ids"));
+        }
+        return movieService.findAllById(ids);
+    }
+
+    //The collection ETag comes from the table-wide change counter, so unchanged collections are not even read.
+    //It is weak since the same collection is sent as JSON, CBOR or Smile and possibly gzipped, Tomcat
+    //only compresses responses with weak ETags
     @GetMapping("")
-    public List<Movie> findAll() {
-        return movieService.findAll();
+    public ResponseEntity<List<Movie>> findAll(WebRequest request) {
+        String eTag = "W/\"" + movieService.getCollectionVersion() + "\"";
+        if (request.checkNotModified(eTag)) {
+        	return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(movieService.findAll());
+    }
+
+    @GetMapping("/page")
+    public MoviePage findPage(@RequestParam(required = false) Long after,
+    		@RequestParam(defaultValue = "50") int limit) {
+        return movieService.findPage(after, limit);
+    }
+
+    //Writes one JSON movie per line while the rows are read from the database, so the table is never held in memory
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        
+        StreamingResponseBody body = out -> {
+        	JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        	generator.setRootValueSeparator(null);
+        	
+        	movieService.streamAll(movie -> {
+        		try {
+        			writer.writeValue(generator, movie);
+        			generator.writeRaw('\n');
+        		} catch (IOException e) {
+        			throw new UncheckedIOException(e);
+        		}
+        	});
+        	generator.flush();
+        };
+        
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
+    //Clients preferring CBOR or Smile get the movies encoded by the matching converter instead of the cached JSON
     @GetMapping(value = "/launchDate/{launchDate}")
-    public List<Movie> findByLaunchDate(@PastOrPresent @PathVariable LocalDate launchDate) {
-        return movieService.findByLaunchDate(launchDate);
+    public ResponseEntity<?> findByLaunchDate(@PastOrPresent @PathVariable LocalDate launchDate,
+    		@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (prefersBinary(accept)) {
+        	return ResponseEntity.ok(movieService.findByLaunchDate(launchDate));
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+        		.body(movieJsonCache.getByLaunchDate(launchDate, movieService::findByLaunchDate));
+    }
+
+    //Filters, sorts and limits in the database. sort is a field name optionally followed by ",asc" or ",desc"
+    @GetMapping("/query")
+    public List<Movie> findByQuery(@RequestParam(required = false) LocalDate launchedFrom,
+    		@RequestParam(required = false) LocalDate launchedTo,
+    		@RequestParam(required = false) BigDecimal minRating,
+    		@RequestParam(required = false) BigDecimal maxRating,
+    		@RequestParam(required = false) Long minRevenue,
+    		@RequestParam(defaultValue = "id") String sort,
+    		@RequestParam(defaultValue = "50") int limit) {
+        Map<String, String> fieldErrors = new HashMap<>();
+        
+        if (launchedFrom != null && launchedTo != null && launchedFrom.isAfter(launchedTo)) {
+        	fieldErrors.put("launchedFrom", "Launched from must not be after launched to");
+        }
+        if (minRating != null && maxRating != null && minRating.compareTo(maxRating) > 0) {
+        	fieldErrors.put("minRating", "Minimum rating must not be greater than maximum rating");
+        }
+        
+        String[] sortParts = sort.split(",", -1);
+        SortField sortField = SORT_FIELDS.get(sortParts[0].trim());
+        boolean descending = sortParts.length == 2 && sortParts[1].trim().equalsIgnoreCase("desc");
+        
+        if (sortField == null || sortParts.length > 2
+        		|| (sortParts.length == 2 && !descending && !sortParts[1].trim().equalsIgnoreCase("asc"))) {
+        	fieldErrors.put("sort", "Sort must be id, launchDate, rating or revenue, optionally followed by ,asc or ,desc");
+        }
+        
+        if (!fieldErrors.isEmpty()) {
+        	throw new InvalidMovieQueryException(fieldErrors);
+        }
+        return movieService.findByQuery(new MovieQuery(launchedFrom, launchedTo, minRating, maxRating,
+        		minRevenue, sortField, descending, limit));
+    }
+
+    //Top n movies by revenue or rating, read in index order
+    @GetMapping("/top")
+    public List<Movie> findTop(@RequestParam(defaultValue = "revenue") String by,
+    		@RequestParam(defaultValue = "10") int n) {
+        SortField sortField = SORT_FIELDS.get(by);
+        
+        if (sortField != SortField.REVENUE && sortField != SortField.RATING) {
+        	throw new InvalidMovieQueryException(Map.of("by", "Top movies can only be ranked by revenue or rating"));
+        }
+        return movieService.findTop(sortField, n);
+    }
+
+    //Count, sum, average, minimum and maximum of the ratings and revenues of each launch year
+    @GetMapping("/stats/years")
+    public List<YearStats> findYearStats() {
+        return movieService.findYearStats();
+    }
+
+    //Movies whose titles contain the words of q, the last word may be the start of a word
+    @GetMapping("/search")
+    public List<Movie> searchByTitle(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return movieService.searchByTitle(q, limit);
     }
 
-    @ResponseStatus(HttpStatus.OK)
+    //Title suggestions answered from the index alone, without reading the movies
+    @GetMapping("/autocomplete")
+    public List<TitleMatch> autocompleteTitle(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        return movieService.autocompleteTitle(prefix, limit);
+    }
+
+    //With an If-Match header the movie is only updated if it still has the version of the given ETag
     @PutMapping(value = "/{id}")
-    public Movie update(@Valid @RequestBody Movie movie, @PathVariable Long id) {
-        return movieService.update(movie, id);
+    public ResponseEntity<Movie> update(@Valid @RequestBody Movie movie, @PathVariable Long id,
+    		@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Movie updatedMovie = movieWrites.update(movie, id, ifMatch);
+        return ResponseEntity.ok().eTag(eTag(updatedMovie)).body(updatedMovie);
+    }
+
+    //Updates every movie of the list by its id, in chunks that are committed one after the other. Each movie
+    //gets an outcome in the order of the list, ids without a movie are reported as NOT_FOUND
+    @PutMapping("/list")
+    public ResponseEntity<List<BulkOutcome>> updateAll(@RequestBody List<@Valid Movie> movies) {
+        requireIds(movies, new HashMap<>());
+        return outcomes(movieService.updateAll(movies));
+    }
+
+    //Like PUT /list, but only the fields present in each movie are updated
+    @PatchMapping("/list")
+    public ResponseEntity<List<BulkOutcome>> patchAll(@RequestBody List<Movie> movies) {
+        Map<String, String> fieldErrors = new HashMap<>();
+        for (Movie movie : movies) {
+        	//missing fields are kept, only the ones present are validated
+        	validator.validate(movie).stream()
+        			.filter(violation -> violation.getInvalidValue() != null)
+        			.forEach(violation -> fieldErrors.put(violation.getPropertyPath().toString(), violation.getMessage()));
+        }
+        
+        requireIds(movies, fieldErrors);
+        return outcomes(movieService.updateAll(movies));
+    }
+
+    private static void requireIds(List<Movie> movies, Map<String, String> fieldErrors) {
+        if (movies.stream().anyMatch(movie -> movie.getId() == null)) {
+        	fieldErrors.put("id", "Id cannot be null");
+        }
+        if (!fieldErrors.isEmpty()) {
+        	throw new InvalidMovieListException(fieldErrors);
+        }
     }
 
     @ResponseStatus(HttpStatus.NO_CONTENT)
@@ -60,9 +275,51 @@ public class MovieController {
         movieService.delete(id);
     }
 
+    //Deletes up to 1000 movies by id, such as ids=3,1,2, with an outcome per id in the order of the ids
+    @DeleteMapping("/list")
+    public ResponseEntity<List<BulkOutcome>> deleteAllById(@RequestParam List<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_IDS || ids.contains(null)) {
+        	throw new InvalidMovieQueryException(Map.of("ids", "Ids must be a list of 1 to " + MAX_BATCH_IDS + " movie ids"));
+        }
+        return outcomes(movieService.deleteAllById(ids));
+    }
+
+    //207 Multi-Status when a chunk failed after others were committed, so the FAILED outcomes aren't taken for a success
+    private static ResponseEntity<List<BulkOutcome>> outcomes(List<BulkOutcome> outcomes) {
+        boolean failed = outcomes.stream().anyMatch(outcome -> outcome.status() == BulkOutcome.Status.FAILED);
+        return ResponseEntity.status(failed ? HttpStatus.MULTI_STATUS : HttpStatus.OK).body(outcomes);
+    }
+
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @DeleteMapping("")
     public void deleteAll() {
         movieService.deleteAll();
     }
+
+    //True when the most preferred of JSON, CBOR and Smile in the Accept header is a binary one
+    private static boolean prefersBinary(String accept) {
+        if (accept == null) {
+        	return false;
+        }
+        
+        List<MediaType> acceptedTypes = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        acceptedTypes.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType acceptedType : acceptedTypes) {
+        	if (acceptedType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+        		return false;
+        	}
+        	if (acceptedType.isCompatibleWith(MediaType.APPLICATION_CBOR) || acceptedType.isCompatibleWith(SMILE)) {
+        		return true;
+        	}
+        }
+        return false;
+    }
+
+    static String eTag(Movie movie) {
+        return eTag(movie.getId(), movie.getVersion());
+    }
+
+    private static String eTag(Long id, Long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
 }
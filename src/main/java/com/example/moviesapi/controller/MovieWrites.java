@@ -0,0 +1,67 @@
+package com.example.moviesapi.controller;
+import com.example.moviesapi.cache.IdempotencyStore;
+import com.example.moviesapi.exceptions.MoviePreconditionFailedException;
+import com.example.moviesapi.ingest.GroupCommitWriter;
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.service.MovieService;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+//Writes behind the Idempotency-Key and If-Match headers, shared by the blocking and the async movie API
+//so both answer the same requests the same way
+@Component
+class MovieWrites {
+
+    private final MovieService movieService;
+    private final GroupCommitWriter groupCommitWriter;
+    private final IdempotencyStore idempotencyStore;
+
+    MovieWrites(MovieService movieService, GroupCommitWriter groupCommitWriter, IdempotencyStore idempotencyStore) {
+        this.movieService = movieService;
+        this.groupCommitWriter = groupCommitWriter;
+        this.idempotencyStore = idempotencyStore;
+    }
+
+    Movie create(Movie movie, String idempotencyKey) {
+        if (idempotencyKey != null) {
+        	return idempotencyStore.execute("create", idempotencyKey, movie, () -> insert(movie));
+        }
+        return insert(movie);
+    }
+
+    private Movie insert(Movie movie) {
+        return groupCommitWriter.isEnabled() ? groupCommitWriter.create(movie) : movieService.create(movie);
+    }
+
+    List<Movie> createAll(List<Movie> movies, String idempotencyKey) {
+        if (idempotencyKey != null) {
+        	return idempotencyStore.execute("createAll", idempotencyKey, movies, () -> movieService.createAll(movies));
+        }
+        return movieService.createAll(movies);
+    }
+
+    Movie update(Movie movie, Long id, String ifMatch) {
+        return ifMatch == null || ifMatch.trim().equals("*")
+        		? movieService.update(movie, id)
+        		: movieService.update(movie, id, expectedVersion(ifMatch, id));
+    }
+
+    //Returns the version of the first strong ETag of the If-Match header that belongs to this movie
+    private static long expectedVersion(String ifMatch, Long id) {
+        String prefix = "\"" + id + "-";
+
+        for (String eTag : ifMatch.split(",")) {
+        	eTag = eTag.trim();
+        	if (eTag.startsWith(prefix) && eTag.endsWith("\"")) {
+        		try {
+        			return Long.parseLong(eTag.substring(prefix.length(), eTag.length() - 1));
+        		} catch (NumberFormatException e) {
+        			//not an ETag issued by this API
+        		}
+        	}
+        }
+        throw new MoviePreconditionFailedException(id);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.moviesapi.exceptions;
+
+
+public class ChangesExpiredException extends RuntimeException {
+	
+	private static final long serialVersionUID = 6120337745281097461L;
+
+	public ChangesExpiredException(long since, long oldest, long last) {
+		super("The changes after sequence " + since + " are no longer available, the change log holds sequences "
+				+ oldest + " to " + last + ". Read the movies again and resume from sequence " + last);
+	 }
+
+	public ChangesExpiredException(String epoch, String currentEpoch, long last) {
+		super("The changes of epoch " + epoch + " are no longer available, the change log was started again with epoch "
+				+ currentEpoch + ". Read the movies again and resume from sequence " + last + " of epoch " + currentEpoch);
+	 }
+}
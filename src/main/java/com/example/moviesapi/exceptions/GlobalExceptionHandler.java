@@ -4,14 +4,17 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.springframework.context.MessageSourceResolvable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
@@ -62,7 +65,7 @@ public class GlobalExceptionHandler {
     		errorDetail = "Invalid launch date path variable";
     		fieldErrors.put("launchDate", "Launch date must be in the past or present");
     		
-    	} else if(ex.getMethod().getName().equals("createAll")) {
+    	} else if(ex.getMethod().getName().equals("createAll") || ex.getMethod().getName().equals("updateAll")) {
     		
     		for(MessageSourceResolvable error: ex.getAllErrors()) {
             	FieldError fieldError = (FieldError) error;
@@ -148,6 +151,11 @@ public class GlobalExceptionHandler {
     	} else if (ex.getMessage().contains("Method parameter 'launchDate'")) {
     		errorTitle = "Launch date path variable is in the wrong format";
     		errorDetail = "Launch date must be in the format yyyy-MM-dd";   		
+    	
+    	//invalid query parameter
+    	} else if (ex.getParameter().hasParameterAnnotation(RequestParam.class)) {
+    		errorTitle = "Query parameter in the wrong format";
+    		errorDetail = "Query parameter '" + ex.getName() + "' is in the wrong format";
     	}
     	
     	ErrorDetails errorDetails = new ErrorDetails(
@@ -161,6 +169,48 @@ public class GlobalExceptionHandler {
     	return new ResponseEntity<>(errorDetails, HttpStatus.BAD_REQUEST);
     }
 
+    // Handles a bulk update with movies without an id or with invalid fields (400 BAD_REQUEST)
+    @ExceptionHandler(InvalidMovieListException.class)
+    public ResponseEntity<ErrorDetails> handleInvalidMovieListException(InvalidMovieListException ex, WebRequest request) {
+        ErrorDetails errorDetails = new ErrorDetails(
+                ex.getFieldErrors().size() > 1 ? "Validation Errors" : "Validation Error", // Title of the error
+                HttpStatus.BAD_REQUEST.value(), // Status code (400)
+                ex.getMessage(), // Detail message
+                request.getDescription(false).replace("uri=", ""), // URI of the request
+                ex.getFieldErrors() // Map of field-specific errors
+        );
+
+        return new ResponseEntity<>(errorDetails, HttpStatus.BAD_REQUEST);
+    }
+
+    // Handles a movie query with invalid filter or sort parameters (400 BAD_REQUEST)
+    @ExceptionHandler(InvalidMovieQueryException.class)
+    public ResponseEntity<ErrorDetails> handleInvalidMovieQueryException(InvalidMovieQueryException ex, WebRequest request) {
+        ErrorDetails errorDetails = new ErrorDetails(
+                "Invalid Query", // Title of the error
+                HttpStatus.BAD_REQUEST.value(), // Status code (400)
+                ex.getMessage(), // Detail message
+                request.getDescription(false).replace("uri=", ""), // URI of the request
+                ex.getFieldErrors() // Map of field-specific errors
+        );
+
+        return new ResponseEntity<>(errorDetails, HttpStatus.BAD_REQUEST);
+    }
+
+    // Handles a request without a required query parameter (400 BAD_REQUEST)
+    @ExceptionHandler(MissingServletRequestParameterException.class)
+    public ResponseEntity<ErrorDetails> handleMissingParameterException(MissingServletRequestParameterException ex, WebRequest request) {
+        ErrorDetails errorDetails = new ErrorDetails(
+                "Missing query parameter", // Title of the error
+                HttpStatus.BAD_REQUEST.value(), // Status code (400)
+                "Query parameter '" + ex.getParameterName() + "' is required", // Detail message
+                request.getDescription(false).replace("uri=", ""), // URI of the request
+                null // Map of field-specific errors
+        );
+
+        return new ResponseEntity<>(errorDetails, HttpStatus.BAD_REQUEST);
+    }
+
     // Handles a movie not found exception (404 NOT_FOUND)
     @ExceptionHandler(MovieNotFoundException.class)
     public ResponseEntity<ErrorDetails> handleMovieNotFoundException(MovieNotFoundException ex, WebRequest request) {
@@ -175,6 +225,90 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorDetails, HttpStatus.NOT_FOUND);
     }
     
+    // Handles a conditional update whose If-Match ETag no longer matches the movie (412 PRECONDITION_FAILED)
+    @ExceptionHandler(MoviePreconditionFailedException.class)
+    public ResponseEntity<ErrorDetails> handleMoviePreconditionFailedException(MoviePreconditionFailedException ex, WebRequest request) {
+        ErrorDetails errorDetails = new ErrorDetails(
+                "Precondition Failed", // Title of the error
+                HttpStatus.PRECONDITION_FAILED.value(), // Status code (412)
+                ex.getMessage(), // Detail message
+                request.getDescription(false).replace("uri=", ""), // URI of the request
+                null // Map of field-specific errors
+        );
+
+        return new ResponseEntity<>(errorDetails, HttpStatus.PRECONDITION_FAILED);
+    }
+    
+    // Handles an idempotency key sent again with a different request body (422 UNPROCESSABLE_ENTITY)
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ErrorDetails> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex, WebRequest request) {
+        ErrorDetails errorDetails = new ErrorDetails(
+                "Idempotency Key Reused", // Title of the error
+                HttpStatus.UNPROCESSABLE_ENTITY.value(), // Status code (422)
+                ex.getMessage(), // Detail message
+                request.getDescription(false).replace("uri=", ""), // URI of the request
+                null // Map of field-specific errors
+        );
+
+        return new ResponseEntity<>(errorDetails, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+    
+    // Handles an async request rejected by a full executor queue or that took too long (503 SERVICE_UNAVAILABLE)
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorDetails> handleServiceOverloadedException(ServiceOverloadedException ex, WebRequest request) {
+        ErrorDetails errorDetails = new ErrorDetails(
+                "Service Unavailable", // Title of the error
+                HttpStatus.SERVICE_UNAVAILABLE.value(), // Status code (503)
+                ex.getMessage(), // Detail message
+                request.getDescription(false).replace("uri=", ""), // URI of the request
+                null // Map of field-specific errors
+        );
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(errorDetails);
+    }
+    
+    // Handles a change feed request after a sequence that is no longer in the change log (410 GONE)
+    @ExceptionHandler(ChangesExpiredException.class)
+    public ResponseEntity<ErrorDetails> handleChangesExpiredException(ChangesExpiredException ex, WebRequest request) {
+        ErrorDetails errorDetails = new ErrorDetails(
+                "Changes Expired", // Title of the error
+                HttpStatus.GONE.value(), // Status code (410)
+                ex.getMessage(), // Detail message
+                request.getDescription(false).replace("uri=", ""), // URI of the request
+                null // Map of field-specific errors
+        );
+
+        return new ResponseEntity<>(errorDetails, HttpStatus.GONE);
+    }
+    
+    // Handles a movie posted while the group commit buffer is full (429 TOO_MANY_REQUESTS)
+    @ExceptionHandler(IngestBufferFullException.class)
+    public ResponseEntity<ErrorDetails> handleIngestBufferFullException(IngestBufferFullException ex, WebRequest request) {
+        ErrorDetails errorDetails = new ErrorDetails(
+                "Too Many Requests", // Title of the error
+                HttpStatus.TOO_MANY_REQUESTS.value(), // Status code (429)
+                ex.getMessage(), // Detail message
+                request.getDescription(false).replace("uri=", ""), // URI of the request
+                null // Map of field-specific errors
+        );
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(errorDetails);
+    }
+    
+    // Handles a list of movies of which only the first chunks were created (500 INTERNAL_SERVER_ERROR)
+    @ExceptionHandler(PartialWriteException.class)
+    public ResponseEntity<ErrorDetails> handlePartialWriteException(PartialWriteException ex, WebRequest request) {
+        ErrorDetails errorDetails = new ErrorDetails(
+                "Partially Created", // Title of the error
+                HttpStatus.INTERNAL_SERVER_ERROR.value(), // Status code (500)
+                ex.getMessage(), // Detail message
+                request.getDescription(false).replace("uri=", ""), // URI of the request
+                null // Map of field-specific errors
+        );
+
+        return new ResponseEntity<>(errorDetails, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+    
     //Handles a no resource found exception thrown when the request has an invalid URI (404 NOT_FOUND)
     @ExceptionHandler(NoResourceFoundException.class)
     public ResponseEntity<ErrorDetails> handleMissingPathVariable(NoResourceFoundException ex, WebRequest request) {
@@ -0,0 +1,11 @@
+package com.example.moviesapi.exceptions;
+
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+	
+	private static final long serialVersionUID = 2177560190218411463L;
+
+	public IdempotencyKeyReusedException(String key) {
+		super("Idempotency key " + key + " was already used with a different request body");
+	 }
+}
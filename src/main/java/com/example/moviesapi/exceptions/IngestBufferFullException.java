@@ -0,0 +1,11 @@
+package com.example.moviesapi.exceptions;
+
+
+public class IngestBufferFullException extends RuntimeException {
+	
+	private static final long serialVersionUID = -3302869473315216547L;
+
+	public IngestBufferFullException(String message) {
+		super(message);
+	 }
+}
@@ -0,0 +1,20 @@
+package com.example.moviesapi.exceptions;
+
+import java.util.Map;
+
+
+public class InvalidMovieListException extends RuntimeException {
+	
+	private static final long serialVersionUID = 4417096231587420931L;
+	
+	private final Map<String, String> fieldErrors;
+
+	public InvalidMovieListException(Map<String, String> fieldErrors) {
+		super(fieldErrors.size() > 1 ? "Invalid fields in the provided movie list" : "Invalid field in the provided movie list");
+		this.fieldErrors = fieldErrors;
+	 }
+
+	public Map<String, String> getFieldErrors() {
+		return fieldErrors;
+	}
+}
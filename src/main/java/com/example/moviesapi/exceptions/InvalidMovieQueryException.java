@@ -0,0 +1,20 @@
+package com.example.moviesapi.exceptions;
+
+import java.util.Map;
+
+
+public class InvalidMovieQueryException extends RuntimeException {
+	
+	private static final long serialVersionUID = -2254716538146915702L;
+	
+	private final Map<String, String> fieldErrors;
+
+	public InvalidMovieQueryException(Map<String, String> fieldErrors) {
+		super("The query contains invalid parameters");
+		this.fieldErrors = fieldErrors;
+	 }
+
+	public Map<String, String> getFieldErrors() {
+		return fieldErrors;
+	}
+}
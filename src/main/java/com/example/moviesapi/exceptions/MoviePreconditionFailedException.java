@@ -0,0 +1,11 @@
+package com.example.moviesapi.exceptions;
+
+
+public class MoviePreconditionFailedException extends RuntimeException {
+	
+	private static final long serialVersionUID = 4870152291386046737L;
+
+	public MoviePreconditionFailedException(Long id) {
+		super("Movie with ID " + id + " was modified since the ETag provided in If-Match was issued");
+	 }
+}
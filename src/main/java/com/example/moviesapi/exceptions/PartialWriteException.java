@@ -0,0 +1,29 @@
+package com.example.moviesapi.exceptions;
+
+import java.util.List;
+
+import com.example.moviesapi.model.Movie;
+
+
+public class PartialWriteException extends RuntimeException {
+	
+	private static final long serialVersionUID = -2740916353180274518L;
+	
+	private final transient List<Movie> created;
+	private final int requested;
+
+	public PartialWriteException(List<Movie> created, int requested, Throwable cause) {
+		super("The first " + created.size() + " of " + requested + " movies were created before the request failed. "
+				+ "Sending it again would create them twice, create only the remaining movies", cause);
+		this.created = List.copyOf(created);
+		this.requested = requested;
+	 }
+
+	public List<Movie> getCreated() {
+		return created;
+	}
+
+	public int getRequested() {
+		return requested;
+	}
+}
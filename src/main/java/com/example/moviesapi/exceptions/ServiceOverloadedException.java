@@ -0,0 +1,11 @@
+package com.example.moviesapi.exceptions;
+
+
+public class ServiceOverloadedException extends RuntimeException {
+	
+	private static final long serialVersionUID = -6118329519487532961L;
+
+	public ServiceOverloadedException(String message) {
+		super(message);
+	 }
+}
@@ -0,0 +1,253 @@
+package com.example.moviesapi.ingest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import com.example.moviesapi.exceptions.IngestBufferFullException;
+import com.example.moviesapi.exceptions.PartialWriteException;
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.service.MovieService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+//Write-behind path of POST /api/movies, enabled with movies.ingest.mode=group-commit. Single movies are queued
+//in a bounded lock-free buffer and a flusher thread inserts them together through createAll, one transaction
+//per batch. A batch is written once it has movies.batch-size movies or its oldest movie waited movies.ingest.max-latency.
+//Callers still only get their movie back after its batch committed; when the buffer is full they are rejected right away
+@Component
+public class GroupCommitWriter implements SmartLifecycle {
+
+	private static final Logger log = Logger.getLogger(GroupCommitWriter.class.getName());
+	
+	private record PendingWrite(Movie movie, long queuedAt, CompletableFuture<Movie> created) {
+	}
+	
+	private final MovieService movieService;
+	private final boolean enabled;
+	private final int capacity;
+	private final int maxBatchSize;
+	private final long maxLatencyNanos;
+	
+	private final Queue<PendingWrite> buffer = new ConcurrentLinkedQueue<>();
+	//slots taken in the buffer, reserved before a write is queued so the buffer never grows past its capacity
+	private final AtomicInteger depth = new AtomicInteger();
+	private volatile boolean running;
+	//set while the flusher waits for an empty buffer to receive a write, only then do producers need to wake it up
+	private volatile boolean idle;
+	private Thread flusher;
+	
+	private final Counter rejected;
+	private final DistributionSummary batchSizes;
+	private final Timer flushes;
+	private final Timer latency;
+
+	public GroupCommitWriter(MovieService movieService, MeterRegistry registry,
+			@Value("${movies.ingest.mode:direct}") String mode,
+			@Value("${movies.ingest.buffer-size:10000}") int capacity,
+			@Value("${movies.ingest.max-latency:5ms}") Duration maxLatency,
+			@Value("${movies.batch-size:500}") int maxBatchSize) {
+		this.movieService = movieService;
+		this.enabled = mode.equals("group-commit");
+		this.capacity = capacity;
+		this.maxBatchSize = maxBatchSize;
+		this.maxLatencyNanos = maxLatency.toNanos();
+		
+		Gauge.builder("movies.ingest.queue.depth", depth, AtomicInteger::get)
+				.description("Movies waiting in the group commit buffer").register(registry);
+		Gauge.builder("movies.ingest.queue.capacity", () -> capacity).register(registry);
+		this.rejected = Counter.builder("movies.ingest.rejected")
+				.description("Movies rejected because the group commit buffer was full").register(registry);
+		this.batchSizes = DistributionSummary.builder("movies.ingest.batch.size").register(registry);
+		this.flushes = Timer.builder("movies.ingest.flush").register(registry);
+		this.latency = Timer.builder("movies.ingest.latency")
+				.description("Time from queueing a movie to the commit of its batch").register(registry);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	//Queues the movie and waits until it's committed
+	public Movie create(Movie movie) {
+		if (!running || depth.incrementAndGet() > capacity) {
+			if (running) {
+				depth.decrementAndGet();
+			}
+			rejected.increment();
+			throw new IngestBufferFullException("The ingestion buffer of " + capacity + " movies is full, retry later");
+		}
+		
+		PendingWrite write = new PendingWrite(movie, System.nanoTime(), new CompletableFuture<>());
+		buffer.add(write);
+		if (idle || depth.get() >= maxBatchSize) {
+			LockSupport.unpark(flusher);
+		}
+		
+		try {
+			return write.created().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the movie to be committed", e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+		}
+	}
+
+	public int depth() {
+		return depth.get();
+	}
+
+	private void flushLoop() {
+		List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+		
+		try {
+			while (running || !buffer.isEmpty()) {
+				PendingWrite oldest = buffer.peek();
+				if (oldest == null) {
+					idle = true;
+					if (buffer.isEmpty() && running) {
+						LockSupport.park(this);
+					}
+					idle = false;
+					continue;
+				}
+				
+				//lingers until the batch is full or the oldest write has waited long enough
+				long remaining;
+				while (running && depth.get() < maxBatchSize
+						&& (remaining = oldest.queuedAt() + maxLatencyNanos - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(this, remaining);
+				}
+				
+				PendingWrite write;
+				while (batch.size() < maxBatchSize && (write = buffer.poll()) != null) {
+					batch.add(write);
+				}
+				depth.addAndGet(-batch.size());
+				try {
+					flush(batch);
+				} finally {
+					//no caller is left waiting for a batch that failed in an unexpected way
+					for (PendingWrite pending : batch) {
+						pending.created().completeExceptionally(new IllegalStateException("The group commit of the movie failed"));
+					}
+					batch.clear();
+				}
+			}
+		} finally {
+			//if the flusher dies, new movies are rejected instead of waiting for it
+			running = false;
+			rejectBuffered("The group commit flusher has stopped");
+		}
+	}
+
+	private void flush(List<PendingWrite> batch) {
+		long start = System.nanoTime();
+		try {
+			List<Movie> created = movieService.createAll(batch.stream().map(PendingWrite::movie).toList());
+			for (int i = 0; i < batch.size(); i++) {
+				complete(batch.get(i), created.get(i));
+			}
+		} catch (PartialWriteException e) {
+			//the first chunks of the batch were committed, their callers get their movies
+			List<Movie> created = e.getCreated();
+			for (int i = 0; i < created.size(); i++) {
+				complete(batch.get(i), created.get(i));
+			}
+			retryOrFail(batch.subList(created.size(), batch.size()), e.getCause());
+		} catch (RuntimeException e) {
+			retryOrFail(batch, e);
+		}
+		
+		flushes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		batchSizes.record(batch.size());
+	}
+
+	//A statement rejected by the database rolled its chunk back, so nothing of it was written: the movies are retried
+	//one at a time and only the ones that fail again report the error. Any other failure may have come after the
+	//commit, so retrying could insert the movies twice and every caller gets the error instead
+	private void retryOrFail(List<PendingWrite> writes, Throwable failure) {
+		if (writes.isEmpty()) {
+			return;
+		}
+		if (!(failure instanceof DataAccessException)) {
+			log.log(Level.SEVERE, "Group commit of " + writes.size() + " movies failed", failure);
+			writes.forEach(write -> write.created().completeExceptionally(failure));
+			return;
+		}
+		
+		log.log(Level.WARNING, "Group commit of " + writes.size() + " movies failed, writing them one by one", failure);
+		for (PendingWrite write : writes) {
+			try {
+				complete(write, movieService.create(write.movie()));
+			} catch (RuntimeException ex) {
+				write.created().completeExceptionally(ex);
+			}
+		}
+	}
+
+	private void rejectBuffered(String reason) {
+		PendingWrite write;
+		while ((write = buffer.poll()) != null) {
+			write.created().completeExceptionally(new IngestBufferFullException(reason));
+		}
+	}
+
+	private void complete(PendingWrite write, Movie created) {
+		latency.record(System.nanoTime() - write.queuedAt(), TimeUnit.NANOSECONDS);
+		write.created().complete(created);
+	}
+
+	@Override
+	public void start() {
+		if (enabled) {
+			running = true;
+			flusher = Thread.ofPlatform().name("movie-group-commit").daemon().start(this::flushLoop);
+		}
+	}
+
+	//Writes whatever is still buffered before the database goes away
+	@Override
+	public void stop() {
+		running = false;
+		LockSupport.unpark(flusher);
+		try {
+			flusher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		//movies queued while the flusher was finishing
+		rejectBuffered("The application is shutting down");
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	//Stopped after the web server, once no more requests can queue movies
+	@Override
+	public int getPhase() {
+		return 0;
+	}
+}
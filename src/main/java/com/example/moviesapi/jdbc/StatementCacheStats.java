@@ -0,0 +1,52 @@
+package com.example.moviesapi.jdbc;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+//Hit and miss counters of the prepared statement caches of every pooled connection
+public class StatementCacheStats implements MeterBinder {
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	
+	void recordHit() {
+		hits.increment();
+	}
+	
+	void recordMiss() {
+		misses.increment();
+	}
+	
+	public long hitCount() {
+		return hits.sum();
+	}
+	
+	public long missCount() {
+		return misses.sum();
+	}
+	
+	public double hitRatio() {
+		long hitCount = hitCount();
+		long requests = hitCount + missCount();
+		return requests == 0 ? 0.0 : (double) hitCount / requests;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("jdbc.statement.cache.requests", this, StatementCacheStats::hitCount)
+				.tag("result", "hit")
+				.description("Prepared statements served from the statement cache")
+				.register(registry);
+		FunctionCounter.builder("jdbc.statement.cache.requests", this, StatementCacheStats::missCount)
+				.tag("result", "miss")
+				.description("Prepared statements that had to be prepared by the database")
+				.register(registry);
+		Gauge.builder("jdbc.statement.cache.hit.ratio", this, StatementCacheStats::hitRatio)
+				.description("Share of prepared statements served from the statement cache")
+				.register(registry);
+	}
+}
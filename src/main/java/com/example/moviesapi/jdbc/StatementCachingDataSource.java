@@ -0,0 +1,251 @@
+package com.example.moviesapi.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+//Keeps the prepared statements of every physical connection open in a small LRU cache keyed by their SQL,
+//so the fixed MovieRepository statements are parsed and planned by H2 once per connection instead of on every call.
+//Closing a cached statement returns it to the cache of its connection, closing the connection closes all of them.
+//A returned statement gets its parameters cleared and its fetch size, row limits and timeout set back to the values
+//it was prepared with, so settings of one user, like the fetch size of a stream, don't carry over to the next.
+//Meant to sit below the connection pool, which hands each connection to a single thread at a time
+public class StatementCachingDataSource extends DelegatingDataSource {
+
+	private final int cacheSize;
+	private final StatementCacheStats stats;
+	
+	public StatementCachingDataSource(DataSource targetDataSource, int cacheSize, StatementCacheStats stats) {
+		super(targetDataSource);
+		this.cacheSize = cacheSize;
+		this.stats = stats;
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		return cachingConnection(obtainTargetDataSource().getConnection());
+	}
+	
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return cachingConnection(obtainTargetDataSource().getConnection(username, password));
+	}
+	
+	private Connection cachingConnection(Connection connection) {
+		if (cacheSize <= 0) {
+			return connection;
+		}
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+				new CachingConnection(connection));
+	}
+	
+	private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+	
+	//Identity based equals and hashCode for the proxies, so pools can track them
+	private static Object invokeObjectMethod(Object proxy, Method method, Object[] args, Object target) {
+		return switch (method.getName()) {
+			case "equals" -> proxy == args[0];
+			case "hashCode" -> System.identityHashCode(proxy);
+			default -> "Cached[" + target + "]";
+		};
+	}
+	
+	private static void closeQuietly(Statement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			//the statement is discarded anyway
+		}
+	}
+	
+	//The variants of Connection.prepareStatement that are cached, other variants are always prepared by the database
+	private record StatementKey(String sql, int autoGeneratedKeys, int resultSetType, int resultSetConcurrency) {
+		
+		static StatementKey of(Method method, Object[] args) {
+			Class<?>[] types = method.getParameterTypes();
+			
+			if (types.length == 1) {
+				return new StatementKey((String) args[0], Statement.NO_GENERATED_KEYS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			}
+			if (types.length == 2 && types[1] == int.class) {
+				return new StatementKey((String) args[0], (int) args[1], ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			}
+			if (types.length == 3 && types[1] == int.class && types[2] == int.class) {
+				return new StatementKey((String) args[0], Statement.NO_GENERATED_KEYS, (int) args[1], (int) args[2]);
+			}
+			return null;
+		}
+	}
+	
+	//The settings users of a statement can change, as the driver prepared it
+	private record Settings(int fetchSize, int fetchDirection, int maxRows, int maxFieldSize, int queryTimeout) {
+		
+		static Settings of(Statement statement) throws SQLException {
+			return new Settings(statement.getFetchSize(), statement.getFetchDirection(), statement.getMaxRows(),
+					statement.getMaxFieldSize(), statement.getQueryTimeout());
+		}
+		
+		//the row limit first, drivers may reject a fetch size above it
+		void restore(Statement statement) throws SQLException {
+			statement.setMaxRows(maxRows);
+			statement.setMaxFieldSize(maxFieldSize);
+			statement.setFetchSize(fetchSize);
+			statement.setFetchDirection(fetchDirection);
+			statement.setQueryTimeout(queryTimeout);
+		}
+	}
+	
+	private record IdleStatement(PreparedStatement statement, Settings settings) {
+	}
+	
+	private final class CachingConnection implements InvocationHandler {
+		
+		private final Connection target;
+		private final Map<StatementKey, IdleStatement> idleStatements = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<StatementKey, IdleStatement> eldest) {
+				if (size() > cacheSize) {
+					closeQuietly(eldest.getValue().statement());
+					return true;
+				}
+				return false;
+			}
+		};
+		
+		CachingConnection(Connection target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getDeclaringClass() == Object.class) {
+				return invokeObjectMethod(proxy, method, args, target);
+			}
+			
+			switch (method.getName()) {
+				case "prepareStatement" -> {
+					StatementKey key = StatementKey.of(method, args);
+					if (key != null) {
+						return checkOut(key, method, args, (Connection) proxy);
+					}
+				}
+				case "close" -> {
+					idleStatements.values().forEach(idle -> closeQuietly(idle.statement()));
+					idleStatements.clear();
+				}
+				case "unwrap" -> {
+					if (((Class<?>) args[0]).isInstance(target)) {
+						return target;
+					}
+				}
+				case "isWrapperFor" -> {
+					if (((Class<?>) args[0]).isInstance(target)) {
+						return true;
+					}
+				}
+				default -> {}
+			}
+			return invokeTarget(target, method, args);
+		}
+		
+		private PreparedStatement checkOut(StatementKey key, Method method, Object[] args, Connection proxy) throws Throwable {
+			IdleStatement idle = idleStatements.remove(key);
+			
+			if (idle == null || idle.statement().isClosed()) {
+				stats.recordMiss();
+				PreparedStatement statement = (PreparedStatement) invokeTarget(target, method, args);
+				idle = new IdleStatement(statement, Settings.of(statement));
+			} else {
+				stats.recordHit();
+			}
+			
+			return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {PreparedStatement.class},
+					new CachedStatement(this, key, idle, proxy));
+		}
+		
+		private void checkIn(StatementKey key, IdleStatement idle) {
+			PreparedStatement statement = idle.statement();
+			try {
+				if (target.isClosed() || statement.isClosed() || idleStatements.containsKey(key)) {
+					closeQuietly(statement);
+					return;
+				}
+				statement.clearParameters();
+				statement.clearBatch();
+				statement.clearWarnings();
+				idle.settings().restore(statement);
+				idleStatements.put(key, idle);
+				
+			} catch (SQLException e) {
+				closeQuietly(statement);
+			}
+		}
+	}
+	
+	private static final class CachedStatement implements InvocationHandler {
+		
+		private final CachingConnection connection;
+		private final StatementKey key;
+		private final IdleStatement idle;
+		private final PreparedStatement target;
+		private final Connection connectionProxy;
+		private boolean closed;
+		
+		CachedStatement(CachingConnection connection, StatementKey key, IdleStatement idle, Connection connectionProxy) {
+			this.connection = connection;
+			this.key = key;
+			this.idle = idle;
+			this.target = idle.statement();
+			this.connectionProxy = connectionProxy;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getDeclaringClass() == Object.class) {
+				return invokeObjectMethod(proxy, method, args, target);
+			}
+			
+			switch (method.getName()) {
+				case "close" -> {
+					if (!closed) {
+						closed = true;
+						connection.checkIn(key, idle);
+					}
+					return null;
+				}
+				case "isClosed" -> {
+					return closed || target.isClosed();
+				}
+				case "getConnection" -> {
+					return connectionProxy;
+				}
+				default -> {
+					if (closed) {
+						throw new SQLException("Statement is closed");
+					}
+					return invokeTarget(target, method, args);
+				}
+			}
+		}
+	}
+}
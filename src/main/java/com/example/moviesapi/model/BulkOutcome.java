@@ -0,0 +1,10 @@
+package com.example.moviesapi.model;
+
+//Outcome of one id of a bulk update or delete. movie holds the updated movie, and is null otherwise.
+//FAILED ids belong to chunks that weren't committed because a chunk failed
+public record BulkOutcome(Long id, Status status, Movie movie) {
+
+	public enum Status {
+		UPDATED, DELETED, NOT_FOUND, FAILED
+	}
+}
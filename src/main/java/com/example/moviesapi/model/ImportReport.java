@@ -0,0 +1,14 @@
+package com.example.moviesapi.model;
+
+import java.util.List;
+import java.util.Map;
+
+//Outcome of a streaming import: how many movies were created, how many rows were rejected and why.
+//Only the first rejected rows are detailed in errors. aborted is set when the input stopped being
+//valid JSON, the rows read before that point are still imported
+public record ImportReport(long imported, long failed, List<RowError> errors, String aborted) {
+
+	//index is the zero-based position of the row in the imported array or NDJSON stream
+	public record RowError(long index, Map<String, String> fieldErrors) {
+	}
+}
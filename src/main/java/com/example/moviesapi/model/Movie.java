@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
@@ -31,6 +32,9 @@ public class Movie {
     @NotNull(message = "Revenue cannot be null")
     private Long revenue; //in USD
     
+    @JsonIgnore
+    private Long version; //incremented on every update, exposed as the movie ETag
+    
     protected Movie() {}
     
     public Movie(String title, LocalDate launchDate, BigDecimal rating, Long revenue) {
@@ -87,5 +91,13 @@ public class Movie {
 
     public void setRevenue(Long revenue) {
         this.revenue = revenue;
-    } 
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
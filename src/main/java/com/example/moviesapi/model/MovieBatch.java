@@ -0,0 +1,8 @@
+package com.example.moviesapi.model;
+
+import java.util.List;
+
+//Result of a lookup of several ids. movies holds the movies found and missing the ids without a movie,
+//both in the order the ids were requested, each id once
+public record MovieBatch(List<Movie> movies, List<Long> missing) {
+}
@@ -0,0 +1,13 @@
+package com.example.moviesapi.model;
+
+import java.time.Instant;
+
+//An entry of the change log. movie holds the movie as it was written, it is null for deletes.
+//version is the version that was written or, for deletes, the version of the deleted row.
+//id and version are null when all movies were deleted
+public record MovieChange(long sequence, Type type, Long id, Long version, Movie movie, Instant timestamp) {
+
+	public enum Type {
+		CREATED, UPDATED, DELETED, DELETED_ALL
+	}
+}
@@ -0,0 +1,8 @@
+package com.example.moviesapi.model;
+
+import java.util.List;
+
+//Changes after a sequence number, in order. last holds the sequence to pass as "since", together with
+//the epoch, to fetch the following changes, and equals the requested sequence when there are no new changes
+public record MovieChanges(String epoch, List<MovieChange> changes, long last) {
+}
@@ -0,0 +1,8 @@
+package com.example.moviesapi.model;
+
+import java.util.List;
+
+//A page of movies ordered by id. next holds the id to pass as the "after" cursor
+//to fetch the following page, or null when there are no more movies
+public record MoviePage(List<Movie> movies, Long next) {
+}
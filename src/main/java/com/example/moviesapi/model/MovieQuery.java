@@ -0,0 +1,29 @@
+package com.example.moviesapi.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+//Filters of the movie query endpoint. Every bound is optional and inclusive, null leaves it open.
+//Movies are ordered by one of the whitelisted sort fields, then by id, and at most limit are returned
+public record MovieQuery(LocalDate launchedFrom, LocalDate launchedTo, BigDecimal minRating, BigDecimal maxRating,
+		Long minRevenue, SortField sort, boolean descending, int limit) {
+
+	//The columns a query can be sorted by, so no client input ever ends up in the SQL text
+	public enum SortField {
+		ID("id"), LAUNCH_DATE("launchDate"), RATING("rating"), REVENUE("revenue");
+
+		private final String column;
+
+		SortField(String column) {
+			this.column = column;
+		}
+
+		public String column() {
+			return column;
+		}
+	}
+
+	public MovieQuery withLimit(int limit) {
+		return new MovieQuery(launchedFrom, launchedTo, minRating, maxRating, minRevenue, sort, descending, limit);
+	}
+}
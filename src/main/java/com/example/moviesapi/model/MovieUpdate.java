@@ -0,0 +1,5 @@
+package com.example.moviesapi.model;
+
+//A movie as the update left it and, when the caller asked for it, as it was before the update, otherwise previous is null
+public record MovieUpdate(Movie previous, Movie updated) {
+}
@@ -0,0 +1,58 @@
+package com.example.moviesapi.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Optional;
+
+//Aggregates of the movies launched in a year
+public record YearStats(int year, long count, Aggregate rating, Aggregate revenue) {
+
+	//Sum, average (rounded to 2 decimal places), minimum and maximum of a movie field
+	public record Aggregate(BigDecimal sum, BigDecimal average, BigDecimal min, BigDecimal max) {
+
+		public static Aggregate of(BigDecimal sum, long count, BigDecimal min, BigDecimal max) {
+			return new Aggregate(sum, sum.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP), min, max);
+		}
+
+		Aggregate plus(BigDecimal value, long count) {
+			return of(sum.add(value), count, min.min(value), max.max(value));
+		}
+
+		//Empty when the value is the minimum or the maximum, the next one isn't known
+		Optional<Aggregate> minus(BigDecimal value, long count) {
+			return value.compareTo(min) <= 0 || value.compareTo(max) >= 0
+					? Optional.empty()
+					: Optional.of(of(sum.subtract(value), count, min, max));
+		}
+	}
+
+	public static YearStats of(Movie movie) {
+		BigDecimal rating = storedRating(movie);
+		BigDecimal revenue = BigDecimal.valueOf(movie.getRevenue());
+		return new YearStats(movie.getLaunchDate().getYear(), 1,
+				Aggregate.of(rating, 1, rating, rating),
+				Aggregate.of(revenue, 1, revenue, revenue));
+	}
+
+	//The stats of the year once the movie, launched that year, is added to it
+	public YearStats plus(Movie movie) {
+		return new YearStats(year, count + 1,
+				rating.plus(storedRating(movie), count + 1),
+				revenue.plus(BigDecimal.valueOf(movie.getRevenue()), count + 1));
+	}
+
+	//The stats of the year once the movie, launched that year, is removed from it. Empty when the movie has the
+	//minimum or the maximum rating or revenue of the year, which can only be found again in the table
+	public Optional<YearStats> minus(Movie movie) {
+		Optional<Aggregate> ratingLeft = rating.minus(storedRating(movie), count - 1);
+		Optional<Aggregate> revenueLeft = revenue.minus(BigDecimal.valueOf(movie.getRevenue()), count - 1);
+		return ratingLeft.isEmpty() || revenueLeft.isEmpty()
+				? Optional.empty()
+				: Optional.of(new YearStats(year, count - 1, ratingLeft.get(), revenueLeft.get()));
+	}
+
+	//The rating as the database stores it, with 1 digit after the decimal point
+	private static BigDecimal storedRating(Movie movie) {
+		return movie.getRating().setScale(1, RoundingMode.HALF_UP);
+	}
+}
@@ -1,20 +1,42 @@
 package com.example.moviesapi.repository;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.model.MovieQuery;
+import com.example.moviesapi.model.MovieUpdate;
+import com.example.moviesapi.model.YearStats;
+import com.example.moviesapi.model.YearStats.Aggregate;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 
 @Repository
@@ -22,30 +44,104 @@ public class MovieRepository {
 
     private final JdbcClient jdbcClient;
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final QueryMetrics queryMetrics;
+    private final int batchSize;
+    private final int fetchSize;
+
+    static final String INSERT_SQL = "INSERT INTO Movie (title, launchDate, rating, revenue) VALUES (?,?,?,?)";
+    static final String FIND_PAGE_SQL = "SELECT * FROM Movie WHERE id > ? ORDER BY id LIMIT ?";
+    static final String STREAM_ALL_SQL = "SELECT * FROM Movie ORDER BY id";
+    static final String FIND_BY_ID_SQL = "SELECT * FROM Movie WHERE id = ?";
+    //Locks the row an update is about to change until it commits, when the caller needs the row it replaces
+    static final String FIND_BY_ID_FOR_UPDATE_SQL = FIND_BY_ID_SQL + " FOR UPDATE";
+    //Widths of the IN lists of findAllById. Every chunk is padded to one of them by repeating its last id,
+    //so only a few distinct statements are planned and kept in the statement cache
+    static final int[] FIND_BY_IDS_WIDTHS = {8, 32, 128};
+    static final String[] FIND_BY_IDS_SQL = byIds("SELECT * FROM Movie WHERE id IN (", ")");
+    //Locks the rows a chunk of updateAll is about to update until it commits, when the caller needs the rows they replace
+    static final String[] FIND_BY_IDS_FOR_UPDATE_SQL = byIds("SELECT * FROM Movie WHERE id IN (", ") FOR UPDATE");
+    static final String[] DELETE_BY_IDS_STATEMENT = byIds("DELETE FROM Movie WHERE id IN (", ")");
+    static final String[] DELETE_BY_IDS_SQL = Arrays.stream(DELETE_BY_IDS_STATEMENT)
+    		.map(statement -> "SELECT * FROM OLD TABLE (" + statement + ")")
+    		.toArray(String[]::new);
+    static final String FIND_ALL_SQL = "SELECT * FROM Movie";
+    static final String FIND_BY_LAUNCH_DATE_SQL = "SELECT * FROM Movie WHERE launchDate = ?";
+    static final String UPDATE_STATEMENT = "UPDATE Movie SET title = ?, launchDate = ?, rating = ?, revenue = ?, version = version + 1 WHERE id = ?";
+    static final String UPDATE_IF_VERSION_STATEMENT = UPDATE_STATEMENT + " AND version = ?";
+    //Fields bound as null keep their current value, so the same statement serves full and partial updates
+    static final String UPDATE_ALL_STATEMENT = "UPDATE Movie SET title = COALESCE(?, title), launchDate = COALESCE(?, launchDate),"
+    		+ " rating = COALESCE(?, rating), revenue = COALESCE(?, revenue), version = version + 1 WHERE id = ?";
+    //Return the updated row in the same round trip through an H2 data change delta table
+    static final String UPDATE_SQL = "SELECT * FROM FINAL TABLE (" + UPDATE_STATEMENT + ")";
+    static final String UPDATE_IF_VERSION_SQL = "SELECT * FROM FINAL TABLE (" + UPDATE_IF_VERSION_STATEMENT + ")";
+    static final String YEAR_STATS_COLUMNS = "SELECT EXTRACT(YEAR FROM launchDate) AS launchYear, COUNT(*) AS movies,"
+    		+ " SUM(rating) AS ratingSum, MIN(rating) AS ratingMin, MAX(rating) AS ratingMax,"
+    		+ " SUM(revenue) AS revenueSum, MIN(revenue) AS revenueMin, MAX(revenue) AS revenueMax FROM Movie";
+    static final String YEAR_STATS_SQL = YEAR_STATS_COLUMNS + " GROUP BY launchYear ORDER BY launchYear";
+    static final String YEAR_STATS_OF_YEAR_SQL = YEAR_STATS_COLUMNS + " WHERE launchDate >= ? AND launchDate < ? GROUP BY launchYear";
+    static final String DELETE_STATEMENT = "DELETE FROM Movie WHERE id = ?";
+    static final String DELETE_SQL = "SELECT * FROM OLD TABLE (" + DELETE_STATEMENT + ")";
+    static final String DELETE_ALL_SQL = "DELETE FROM Movie";
+    
+    static final RowMapper<Movie> MOVIE_ROW_MAPPER = (rs, rowNum) -> {
+    	Movie movie = new Movie(
+    			rs.getLong("id"),
+    			rs.getString("title"),
+    			rs.getObject("launchDate", LocalDate.class),
+    			rs.getBigDecimal("rating"),
+    			rs.getLong("revenue"));
+    	movie.setVersion(rs.getLong("version"));
+    	return movie;
+    };
+    
+    static final RowMapper<YearStats> YEAR_STATS_ROW_MAPPER = (rs, rowNum) -> {
+    	long count = rs.getLong("movies");
+    	return new YearStats(rs.getInt("launchYear"), count,
+    			Aggregate.of(rs.getBigDecimal("ratingSum"), count, rs.getBigDecimal("ratingMin"), rs.getBigDecimal("ratingMax")),
+    			Aggregate.of(rs.getBigDecimal("revenueSum"), count, rs.getBigDecimal("revenueMin"), rs.getBigDecimal("revenueMax")));
+    };
+    
+    //One statement per width of the IN list
+    private static String[] byIds(String prefix, String suffix) {
+    	return Arrays.stream(FIND_BY_IDS_WIDTHS)
+    			.mapToObj(width -> prefix + String.join(",", Collections.nCopies(width, "?")) + suffix)
+    			.toArray(String[]::new);
+    }
     
-    public MovieRepository(JdbcClient jdbcClient, JdbcTemplate jdbcTemplate) {
+    public MovieRepository(JdbcClient jdbcClient, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+    		QueryMetrics queryMetrics, @Value("${movies.batch-size:500}") int batchSize, @Value("${movies.stream.fetch-size:500}") int fetchSize) {
         this.jdbcClient = jdbcClient;
         this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.queryMetrics = queryMetrics;
+        this.batchSize = batchSize;
+        this.fetchSize = fetchSize;
+        
+        //the chunked writes advance by batchSize rows
+        if (batchSize < 1) {
+        	throw new IllegalArgumentException("movies.batch-size must be at least 1, but was " + batchSize);
+        }
     }
     
     public Movie create(Movie movie) throws IllegalStateException {
         KeyHolder keyHolder = new GeneratedKeyHolder();
-        String sql = "INSERT INTO Movie (title, launchDate, rating, revenue) VALUES (?,?,?,?)";
     	
-        int nrRows = jdbcTemplate.update(connection -> {
+        int nrRows = queryMetrics.record("create", INSERT_SQL, () -> jdbcTemplate.update(connection -> {
         	PreparedStatement ps = connection
-        			.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        			.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
         	        ps.setString(1, movie.getTitle());
         	        ps.setObject(2, movie.getLaunchDate());
         	        ps.setBigDecimal(3, movie.getRating());
         	        ps.setLong(4, movie.getRevenue());
         	return ps;
         	
-        }, keyHolder);
+        }, keyHolder), Integer::intValue);
         	
         Number genKey = keyHolder.getKey();
         if (genKey != null) {
             movie.setId(genKey.longValue());
+            movie.setVersion(0L);
             
         } else {
             throw new IllegalStateException("Failed to retrieve generated ID for the movie " + movie.getTitle());
@@ -59,54 +155,345 @@ public class MovieRepository {
     }
 
     public List<Movie> createAll(List<Movie> movies) {
-    	List<Movie> createdMovies = new ArrayList<>();
+    	return createAll(movies, chunk -> {});
+    }
+
+    public List<Movie> createAll(List<Movie> movies, Consumer<List<Movie>> committed) {
+    	return createAll(movies, new ReentrantLock(), committed);
+    }
+
+    //Inserts the movies in chunks of batchSize rows, each chunk is a single JDBC batch in its own transaction.
+    //The created movies of each chunk are handed to the action once the chunk has committed, so when a chunk
+    //fails the action has already seen the chunks before it, which stay committed. Each chunk holds the commit
+    //order lock from its transaction until its action returns, so the actions of concurrent writes see the chunks
+    //in the order they committed, without a bulk write holding the lock between its chunks
+    public List<Movie> createAll(List<Movie> movies, Lock commitOrder, Consumer<List<Movie>> committed) {
+    	List<Movie> createdMovies = new ArrayList<>(movies.size());
     	
-        for (Movie movie : movies) {
-			createdMovies.add(create(movie));
+        for (int from = 0; from < movies.size(); from += batchSize) {
+        	List<Movie> chunk = movies.subList(from, Math.min(from + batchSize, movies.size()));
+        	createdMovies.addAll(inCommitOrder(commitOrder, () -> queryMetrics.record("createAll", INSERT_SQL,
+        			() -> transactionTemplate.execute(status -> insertBatch(chunk)), List::size), committed));
         }
         
         return createdMovies;
     }
 
+    private static <T> T inCommitOrder(Lock commitOrder, Supplier<T> chunk, Consumer<T> committed) {
+    	commitOrder.lock();
+    	try {
+    		T result = chunk.get();
+    		committed.accept(result);
+    		return result;
+    	} finally {
+    		commitOrder.unlock();
+    	}
+    }
+
+    private List<Movie> insertBatch(List<Movie> chunk) throws IllegalStateException {
+    	KeyHolder keyHolder = new GeneratedKeyHolder();
+    	
+    	int[] nrRows = jdbcTemplate.batchUpdate(
+    			connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+    			new BatchPreparedStatementSetter() {
+    				@Override
+    				public void setValues(PreparedStatement ps, int i) throws SQLException {
+    					Movie movie = chunk.get(i);
+    					ps.setString(1, movie.getTitle());
+    					ps.setObject(2, movie.getLaunchDate());
+    					ps.setBigDecimal(3, movie.getRating());
+    					ps.setLong(4, movie.getRevenue());
+    				}
+
+    				@Override
+    				public int getBatchSize() {
+    					return chunk.size();
+    				}
+    			}, keyHolder);
+    	
+    	List<Map<String, Object>> keys = keyHolder.getKeyList();
+    	if (keys.size() != chunk.size()) {
+    		throw new IllegalStateException("Failed to retrieve generated IDs for a batch of " + chunk.size() + " movies");
+    	}
+    	
+    	for (int i = 0; i < chunk.size(); i++) {
+    		if (nrRows[i] != 1 && nrRows[i] != Statement.SUCCESS_NO_INFO) {
+    			throw new JdbcUpdateAffectedIncorrectNumberOfRowsException("INSERT INTO Movie", 1, nrRows[i]);
+    		}
+    		Number genKey = (Number) keys.get(i).values().iterator().next();
+    		chunk.get(i).setId(genKey.longValue());
+    		chunk.get(i).setVersion(0L);
+    	}
+    	
+    	return chunk;
+    }
+
     public Optional<Movie> findById(Long id) {
-        return jdbcClient.sql("SELECT * FROM Movie WHERE id = ?")
+        return queryMetrics.record("findById", FIND_BY_ID_SQL, () -> jdbcClient.sql(FIND_BY_ID_SQL)
                          .param(id)
                          .query(Movie.class)
-                         .optional();
+                         .optional(), movie -> movie.isPresent() ? 1 : 0);
+    }
+
+    //Returns the movies with the given ids in no particular order, ids without a movie are left out.
+    //The ids are read in chunks of up to 128 with one query per chunk
+    public List<Movie> findAllById(Collection<Long> ids) {
+        return queryByIds("findAllById", FIND_BY_IDS_SQL, ids);
+    }
+
+    //Runs one of the statements of sqls per chunk of ids, each chunk padded to the width of its statement
+    private List<Movie> queryByIds(String query, String[] sqls, Collection<Long> ids) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<Movie> movies = new ArrayList<>(distinct.size());
+        
+        for (int from = 0; from < distinct.size(); ) {
+        	int remaining = distinct.size() - from;
+        	int width = 0;
+        	while (width < FIND_BY_IDS_WIDTHS.length - 1 && FIND_BY_IDS_WIDTHS[width] < remaining) {
+        		width++;
+        	}
+        	
+        	List<Object> params = new ArrayList<>(distinct.subList(from, from + Math.min(remaining, FIND_BY_IDS_WIDTHS[width])));
+        	while (params.size() < FIND_BY_IDS_WIDTHS[width]) {
+        		params.add(params.get(params.size() - 1));
+        	}
+        	
+        	String sql = sqls[width];
+        	movies.addAll(queryMetrics.record(query, sql, () -> jdbcClient.sql(sql)
+        	                 .params(params)
+        	                 .query(MOVIE_ROW_MAPPER)
+        	                 .list(), List::size));
+        	from += FIND_BY_IDS_WIDTHS[width];
+        }
+        
+        return movies;
     }
 
     public List<Movie> findAll() {
-        return jdbcClient.sql("SELECT * FROM Movie")
+        return queryMetrics.record("findAll", FIND_ALL_SQL, () -> jdbcClient.sql(FIND_ALL_SQL)
                          .query(Movie.class)
-                         .list();
+                         .list(), List::size);
+    }
+
+    //Keyset pagination: returns up to limit movies with an id greater than afterId, ordered by id
+    public List<Movie> findPage(Long afterId, int limit) {
+        return queryMetrics.record("findPage", FIND_PAGE_SQL, () -> jdbcClient.sql(FIND_PAGE_SQL)
+                         .params(afterId == null ? Long.MIN_VALUE : afterId, limit)
+                         .query(MOVIE_ROW_MAPPER)
+                         .list(), List::size);
+    }
+
+    //Reads the whole table through a forward-only cursor and hands each row to the action as soon as it is read.
+    //H2 materializes query results by default, so lazy execution is switched on for the duration of the query.
+    //Its timer covers the whole time the cursor is open, including the time spent in the action
+    public void streamAll(Consumer<Movie> action) {
+        queryMetrics.record("streamAll", STREAM_ALL_SQL, () -> jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+        	int rowNum = 0;
+        	
+        	try (Statement settings = connection.createStatement()) {
+        		settings.execute("SET LAZY_QUERY_EXECUTION TRUE");
+        		
+        		try (PreparedStatement ps = connection.prepareStatement(STREAM_ALL_SQL,
+        				ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+        			ps.setFetchSize(fetchSize);
+        			
+        			try (ResultSet rs = ps.executeQuery()) {
+        				while (rs.next()) {
+        					action.accept(MOVIE_ROW_MAPPER.mapRow(rs, rowNum++));
+        				}
+        			}
+        		} finally {
+        			settings.execute("SET LAZY_QUERY_EXECUTION FALSE");
+        		}
+        	}
+        	return rowNum;
+        }), Integer::intValue);
     }
 
     public List<Movie> findByLaunchDate(LocalDate launchDate) {
-        return jdbcClient.sql("SELECT * FROM Movie WHERE launchDate = ?")
+        return queryMetrics.record("findByLaunchDate", FIND_BY_LAUNCH_DATE_SQL, () -> jdbcClient.sql(FIND_BY_LAUNCH_DATE_SQL)
                          .param(launchDate)
                          .query(Movie.class)
-                         .list();
+                         .list(), List::size);
     }
 
-    public Optional<Movie> update(Movie movie, Long id) {
-        int nrRows = jdbcClient.sql("UPDATE Movie SET title = ?, launchDate = ?, rating = ?, revenue = ? WHERE id = ?")
-                               .params(List.of(movie.getTitle(), movie.getLaunchDate(), movie.getRating(), movie.getRevenue(), id))
-                               .update();
+    //Movies whose lower case title contains every word, shortest titles first, then by id. The words come from
+    //TitleIndex.tokenize, they only hold letters and digits, so none of them is a LIKE wildcard. No index helps
+    //a LIKE with a leading wildcard, the whole table is read
+    public List<Movie> findByTitleWords(List<String> words, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM Movie WHERE ");
+        List<Object> params = new ArrayList<>();
         
-        if(nrRows != 1) {
-			return Optional.empty();
-		}
+        for (String word : words) {
+        	sql.append(params.isEmpty() ? "" : " AND ").append("LOWER(title) LIKE ?");
+        	params.add("%" + word + "%");
+        }
+        sql.append(" ORDER BY CHAR_LENGTH(title), id LIMIT ?");
+        params.add(limit);
+        
+        return queryMetrics.record("findByTitleWords", sql.toString(), () -> jdbcClient.sql(sql.toString())
+                         .params(params)
+                         .query(MOVIE_ROW_MAPPER)
+                         .list(), List::size);
+    }
+
+    //Filters in the database through the launchDate, rating and revenue indexes
+    public List<Movie> findByQuery(MovieQuery query) {
+        List<Object> params = new ArrayList<>();
+        String sql = findByQuerySql(query, params);
+        
+        return queryMetrics.record("findByQuery", sql, () -> jdbcClient.sql(sql)
+                         .params(params)
+                         .query(MOVIE_ROW_MAPPER)
+                         .list(), List::size);
+    }
 
-        return findById(id);
+    //Builds the SQL of a movie query and adds its parameters to params. Only fixed column names and
+    //placeholders make it into the SQL text, the filter values are always bound as parameters
+    static String findByQuerySql(MovieQuery query, List<Object> params) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM Movie");
+        
+        addCondition(sql, params, "launchDate >= ?", query.launchedFrom());
+        addCondition(sql, params, "launchDate <= ?", query.launchedTo());
+        addCondition(sql, params, "rating >= ?", query.minRating());
+        addCondition(sql, params, "rating <= ?", query.maxRating());
+        addCondition(sql, params, "revenue >= ?", query.minRevenue());
+        
+        String direction = query.descending() ? " DESC" : "";
+        sql.append(" ORDER BY ").append(query.sort().column()).append(direction);
+        if (query.sort() != MovieQuery.SortField.ID) {
+        	sql.append(", id").append(direction);
+        }
+        
+        sql.append(" LIMIT ?");
+        params.add(query.limit());
+        return sql.toString();
     }
 
-    public void delete(Long id) {
-        jdbcClient.sql("DELETE FROM Movie WHERE id = ?")
-                  .param(id)
-                  .update();
+    private static void addCondition(StringBuilder sql, List<Object> params, String condition, Object value) {
+        if (value != null) {
+        	sql.append(params.isEmpty() ? " WHERE " : " AND ").append(condition);
+        	params.add(value);
+        }
+    }
+
+    //Count, sum, average, minimum and maximum of the ratings and revenues of each launch year, ordered by year
+    public List<YearStats> findYearStats() {
+        return queryMetrics.record("findYearStats", YEAR_STATS_SQL, () -> jdbcClient.sql(YEAR_STATS_SQL)
+                         .query(YEAR_STATS_ROW_MAPPER)
+                         .list(), List::size);
+    }
+
+    //The aggregates of a single launch year, read through the launchDate index. Empty when no movie was launched that year
+    public Optional<YearStats> findYearStats(int year) {
+        return queryMetrics.record("findYearStatsOfYear", YEAR_STATS_OF_YEAR_SQL, () -> jdbcClient.sql(YEAR_STATS_OF_YEAR_SQL)
+                         .params(LocalDate.ofYearDay(year, 1), LocalDate.ofYearDay(year + 1, 1))
+                         .query(YEAR_STATS_ROW_MAPPER)
+                         .optional(), stats -> stats.isPresent() ? 1 : 0);
+    }
+
+    //Returns the updated movie as the database stored it, or empty when there is no movie with the given id.
+    //With withPrevious the movie is first read and locked in the same transaction, and reported as the previous row
+    public Optional<MovieUpdate> update(Movie movie, Long id, boolean withPrevious) {
+        return update("update", UPDATE_SQL, List.of(movie.getTitle(), movie.getLaunchDate(), movie.getRating(), movie.getRevenue(), id),
+        		id, withPrevious);
+    }
+
+    //Optimistic update: only updates the movie if its version is still the expected one
+    public Optional<MovieUpdate> update(Movie movie, Long id, long expectedVersion, boolean withPrevious) {
+        return update("updateIfVersion", UPDATE_IF_VERSION_SQL,
+        		List.of(movie.getTitle(), movie.getLaunchDate(), movie.getRating(), movie.getRevenue(), id, expectedVersion), id, withPrevious);
+    }
+
+    private Optional<MovieUpdate> update(String query, String sql, List<Object> params, Long id, boolean withPrevious) {
+        if (!withPrevious) {
+        	return updateRow(query, sql, params).map(updated -> new MovieUpdate(null, updated));
+        }
+        return transactionTemplate.execute(status -> queryMetrics.record("findByIdForUpdate", FIND_BY_ID_FOR_UPDATE_SQL,
+        		() -> jdbcClient.sql(FIND_BY_ID_FOR_UPDATE_SQL).param(id).query(MOVIE_ROW_MAPPER).optional(), found -> found.isPresent() ? 1 : 0)
+        		.flatMap(previous -> updateRow(query, sql, params).map(updated -> new MovieUpdate(previous, updated))));
+    }
+
+    private Optional<Movie> updateRow(String query, String sql, List<Object> params) {
+        return queryMetrics.record(query, sql, () -> jdbcClient.sql(sql)
+                         .params(params)
+                         .query(MOVIE_ROW_MAPPER)
+                         .optional(), updated -> updated.isPresent() ? 1 : 0);
+    }
+
+    //Updates the movies by id in chunks of batchSize rows. Each chunk is a single JDBC batch followed by a read of the
+    //updated rows, in its own transaction. With withPrevious the rows of the chunk are read and locked before the batch,
+    //and reported as the previous rows. Each chunk and its updates, one per updated id, are handed to the action once the
+    //chunk has committed, ids without a movie have no update. When a chunk fails, the chunks before it stay committed.
+    //Like createAll, each chunk holds the commit order lock until its action returns
+    public void updateAll(List<Movie> movies, boolean withPrevious, Lock commitOrder, BiConsumer<List<Movie>, List<MovieUpdate>> committed) {
+        for (int from = 0; from < movies.size(); from += batchSize) {
+        	List<Movie> chunk = movies.subList(from, Math.min(from + batchSize, movies.size()));
+        	inCommitOrder(commitOrder, () -> queryMetrics.record("updateAll", UPDATE_ALL_STATEMENT,
+        			() -> transactionTemplate.execute(status -> updateBatch(chunk, withPrevious)), List::size),
+        			updates -> committed.accept(chunk, updates));
+        }
+    }
+
+    private List<MovieUpdate> updateBatch(List<Movie> chunk, boolean withPrevious) {
+    	Map<Long, Movie> previous = new HashMap<>();
+    	if (withPrevious) {
+    		queryByIds("findAllByIdForUpdate", FIND_BY_IDS_FOR_UPDATE_SQL, chunk.stream().map(Movie::getId).toList())
+    				.forEach(movie -> previous.put(movie.getId(), movie));
+    		if (previous.isEmpty()) {
+    			return List.of();
+    		}
+    	}
+    	
+    	int[] nrRows = jdbcTemplate.batchUpdate(UPDATE_ALL_STATEMENT, new BatchPreparedStatementSetter() {
+    		@Override
+    		public void setValues(PreparedStatement ps, int i) throws SQLException {
+    			Movie movie = chunk.get(i);
+    			ps.setString(1, movie.getTitle());
+    			ps.setObject(2, movie.getLaunchDate());
+    			ps.setBigDecimal(3, movie.getRating());
+    			ps.setObject(4, movie.getRevenue());
+    			ps.setLong(5, movie.getId());
+    		}
+
+    		@Override
+    		public int getBatchSize() {
+    			return chunk.size();
+    		}
+    	});
+    	
+    	List<Long> updatedIds = new ArrayList<>(chunk.size());
+    	for (int i = 0; i < chunk.size(); i++) {
+    		if (nrRows[i] > 0 || nrRows[i] == Statement.SUCCESS_NO_INFO) {
+    			updatedIds.add(chunk.get(i).getId());
+    		}
+    	}
+    	//an id listed twice is reported once, from its row before the chunk to its row after it
+    	return updatedIds.isEmpty() ? List.of() : findAllById(updatedIds).stream()
+    			.map(updated -> new MovieUpdate(previous.get(updated.getId()), updated))
+    			.toList();
+    }
+
+    //Deletes the movies by id in chunks of batchSize ids, each chunk in its own transaction with one statement per
+    //128 ids that returns the deleted rows. Each chunk and the movies it deleted are handed to the action once the
+    //chunk has committed, while holding the commit order lock like createAll
+    public void deleteAllById(List<Long> ids, Lock commitOrder, BiConsumer<List<Long>, List<Movie>> committed) {
+        for (int from = 0; from < ids.size(); from += batchSize) {
+        	List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+        	inCommitOrder(commitOrder, () -> transactionTemplate.execute(status -> queryByIds("deleteAllById", DELETE_BY_IDS_SQL, chunk)),
+        			deleted -> committed.accept(chunk, deleted));
+        }
+    }
+
+    //Returns the deleted movie, or empty when there is no movie with the given id
+    public Optional<Movie> delete(Long id) {
+        return queryMetrics.record("delete", DELETE_SQL, () -> jdbcClient.sql(DELETE_SQL)
+                         .param(id)
+                         .query(MOVIE_ROW_MAPPER)
+                         .optional(), deleted -> deleted.isPresent() ? 1 : 0);
     }
 
     public void deleteAll() {
-        jdbcClient.sql("DELETE FROM Movie").update();
+        queryMetrics.record("deleteAll", DELETE_ALL_SQL, () -> jdbcClient.sql(DELETE_ALL_SQL).update(), Integer::intValue);
     }
 }
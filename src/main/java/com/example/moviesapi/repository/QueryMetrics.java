@@ -0,0 +1,79 @@
+package com.example.moviesapi.repository;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+//Times every repository query and records how many rows it read or wrote, tagged by query name.
+//Queries slower than movies.slow-query-threshold are also logged with their SQL
+@Component
+public class QueryMetrics {
+
+	private static final Logger logger = Logger.getLogger(QueryMetrics.class.getName());
+
+	private final MeterRegistry registry;
+	private final long slowQueryThresholdNanos;
+	private final Map<String, QueryMeters> meters = new ConcurrentHashMap<>();
+
+	private record QueryMeters(Timer success, Timer error, DistributionSummary rows) {
+	}
+
+	public QueryMetrics(MeterRegistry registry, @Value("${movies.slow-query-threshold:200ms}") Duration slowQueryThreshold) {
+		this.registry = registry;
+		this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+	}
+
+	//Runs the query and returns its result, rows extracts the number of rows read or written from that result
+	public <T> T record(String query, String sql, Supplier<T> call, ToIntFunction<? super T> rows) {
+		QueryMeters queryMeters = meters.computeIfAbsent(query, this::register);
+		long start = System.nanoTime();
+		T result;
+		
+		try {
+			result = call.get();
+		} catch (RuntimeException e) {
+			queryMeters.error().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			throw e;
+		}
+		
+		long elapsed = System.nanoTime() - start;
+		int nrRows = rows.applyAsInt(result);
+		queryMeters.success().record(elapsed, TimeUnit.NANOSECONDS);
+		queryMeters.rows().record(nrRows);
+		
+		if (elapsed >= slowQueryThresholdNanos) {
+			logger.warning(String.format("Slow query %s took %d ms for %d rows: %s",
+					query, TimeUnit.NANOSECONDS.toMillis(elapsed), nrRows, sql));
+		}
+		return result;
+	}
+
+	private QueryMeters register(String query) {
+		return new QueryMeters(
+				timer(query, "success"),
+				timer(query, "error"),
+				DistributionSummary.builder("movies.repository.rows")
+						.description("Rows read or written by a repository query")
+						.tag("query", query)
+						.register(registry));
+	}
+
+	private Timer timer(String query, String outcome) {
+		return Timer.builder("movies.repository.query")
+				.description("Repository query execution time")
+				.tag("query", query)
+				.tag("outcome", outcome)
+				.register(registry);
+	}
+}
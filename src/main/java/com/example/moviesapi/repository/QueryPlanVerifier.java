@@ -0,0 +1,124 @@
+package com.example.moviesapi.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Component;
+
+import com.example.moviesapi.model.MovieQuery;
+import com.example.moviesapi.model.MovieQuery.SortField;
+
+//Runs EXPLAIN on every statement issued by MovieRepository at startup and reports the hot ones that
+//scan the whole Movie table instead of using an index. Controlled by movies.query-plan-check:
+//off (skip the check), warn (log the offending statements) or fail (abort the startup)
+@Component
+public class QueryPlanVerifier implements ApplicationRunner {
+
+	private static final Logger log = Logger.getLogger(QueryPlanVerifier.class.getName());
+	
+	public enum Mode { OFF, WARN, FAIL }
+	
+	//A repository statement with sample parameters. Statements that read or delete every row are expected to scan the table
+	record CheckedQuery(String name, String sql, List<Object> params, boolean tableScanExpected) {
+		
+		//Sample of the SQL generated for a movie query, each one exercises a different index
+		static CheckedQuery of(String name, MovieQuery query) {
+			List<Object> params = new ArrayList<>();
+			String sql = MovieRepository.findByQuerySql(query, params);
+			return new CheckedQuery(name, sql, params, false);
+		}
+	}
+	
+	static final List<CheckedQuery> QUERIES = List.of(
+			new CheckedQuery("create", MovieRepository.INSERT_SQL,
+					List.of("Movie", LocalDate.of(2000, 1, 1), BigDecimal.ONE, 0L), false),
+			new CheckedQuery("findById", MovieRepository.FIND_BY_ID_SQL, List.of(1L), false),
+			new CheckedQuery("findAllById", MovieRepository.FIND_BY_IDS_SQL[0],
+					List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), false),
+			new CheckedQuery("findByIdForUpdate", MovieRepository.FIND_BY_ID_FOR_UPDATE_SQL, List.of(1L), false),
+			new CheckedQuery("findAllByIdForUpdate", MovieRepository.FIND_BY_IDS_FOR_UPDATE_SQL[0],
+					List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), false),
+			new CheckedQuery("findAll", MovieRepository.FIND_ALL_SQL, List.of(), true),
+			new CheckedQuery("findPage", MovieRepository.FIND_PAGE_SQL, List.of(1L, 50), false),
+			new CheckedQuery("streamAll", MovieRepository.STREAM_ALL_SQL, List.of(), true),
+			new CheckedQuery("findByLaunchDate", MovieRepository.FIND_BY_LAUNCH_DATE_SQL,
+					List.of(LocalDate.of(2000, 1, 1)), false),
+			CheckedQuery.of("findByQuery(launchDate range)", new MovieQuery(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31),
+					null, null, null, SortField.LAUNCH_DATE, false, 50)),
+			CheckedQuery.of("findByQuery(rating range)", new MovieQuery(null, null, new BigDecimal("8.0"), new BigDecimal("9.0"),
+					null, SortField.RATING, true, 50)),
+			CheckedQuery.of("findByQuery(minimum revenue)", new MovieQuery(null, null, null, null,
+					1_000_000_000L, SortField.REVENUE, true, 50)),
+			CheckedQuery.of("findByQuery(top rated)", new MovieQuery(null, null, null, null,
+					null, SortField.RATING, true, 10)),
+			CheckedQuery.of("findByQuery(top grossing)", new MovieQuery(null, null, null, null,
+					null, SortField.REVENUE, true, 10)),
+			//EXPLAIN doesn't show the plan of statements wrapped in a delta table, so the UPDATE itself is checked
+			new CheckedQuery("update", MovieRepository.UPDATE_STATEMENT,
+					List.of("Movie", LocalDate.of(2000, 1, 1), BigDecimal.ONE, 0L, 1L), false),
+			new CheckedQuery("updateIfVersion", MovieRepository.UPDATE_IF_VERSION_STATEMENT,
+					List.of("Movie", LocalDate.of(2000, 1, 1), BigDecimal.ONE, 0L, 1L, 0L), false),
+			new CheckedQuery("updateAll", MovieRepository.UPDATE_ALL_STATEMENT,
+					List.of("Movie", LocalDate.of(2000, 1, 1), BigDecimal.ONE, 0L, 1L), false),
+			new CheckedQuery("findYearStats", MovieRepository.YEAR_STATS_SQL, List.of(), true),
+			new CheckedQuery("findYearStatsOfYear", MovieRepository.YEAR_STATS_OF_YEAR_SQL,
+					List.of(LocalDate.of(2000, 1, 1), LocalDate.of(2001, 1, 1)), false),
+			new CheckedQuery("delete", MovieRepository.DELETE_STATEMENT, List.of(1L), false),
+			new CheckedQuery("deleteAllById", MovieRepository.DELETE_BY_IDS_STATEMENT[0],
+					List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), false),
+			new CheckedQuery("deleteAll", MovieRepository.DELETE_ALL_SQL, List.of(), true));
+	
+	private final JdbcClient jdbcClient;
+	private final Mode mode;
+	
+	public QueryPlanVerifier(JdbcClient jdbcClient, @Value("${movies.query-plan-check:warn}") Mode mode) {
+		this.jdbcClient = jdbcClient;
+		this.mode = mode;
+	}
+	
+	@Override
+	public void run(ApplicationArguments args) {
+		if (mode == Mode.OFF) {
+			return;
+		}
+		
+		List<String> tableScans = findUnexpectedTableScans();
+		if (tableScans.isEmpty()) {
+			log.info("Query plan check passed for " + QUERIES.size() + " MovieRepository statements");
+			return;
+		}
+		
+		String message = "MovieRepository statements scanning the whole Movie table: " + String.join("; ", tableScans);
+		if (mode == Mode.FAIL) {
+			throw new IllegalStateException(message);
+		}
+		log.warning(message);
+	}
+	
+	//Returns "name: plan" for every statement whose plan is a table scan when an index lookup was expected
+	public List<String> findUnexpectedTableScans() {
+		List<String> tableScans = new ArrayList<>();
+		
+		for (CheckedQuery query : QUERIES) {
+			String plan = explain(query);
+			if (!query.tableScanExpected() && plan.contains(".tableScan")) {
+				tableScans.add(query.name() + ": " + plan.replaceAll("\\s+", " "));
+			}
+		}
+		return tableScans;
+	}
+	
+	String explain(CheckedQuery query) {
+		return jdbcClient.sql("EXPLAIN " + query.sql())
+		                 .params(query.params())
+		                 .query(String.class)
+		                 .single();
+	}
+}
@@ -0,0 +1,417 @@
+package com.example.moviesapi.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.moviesapi.cache.DeletedIds;
+import com.example.moviesapi.model.Movie;
+
+//Inverted index of the words of the movie titles. The words are kept sorted, so a prefix matches a contiguous
+//range of them, and each word maps to the movies with that word in their title in ranking order: shorter
+//titles first, then older movies. A query only reads the first entries of the words it matches.
+//The last word of a query is a prefix, the others must be whole words of the title. Writes can reach the index
+//out of order, so a title is never replaced by the one of an older version or indexed again once its movie is deleted.
+//The index holds at most maxTitles titles. Past that it drops everything and stays empty until the catalog is
+//cleared, isComplete turns false and searches are answered by rank over the movies the database matches
+@Component
+public class TitleIndex {
+
+	private static final Logger log = Logger.getLogger(TitleIndex.class.getName());
+	private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+	
+	//Posting entries pack the title length above the movie id, so sorting them sorts by rank
+	private static final int ID_BITS = 47;
+	private static final long ID_MASK = (1L << ID_BITS) - 1;
+	private static final int MAX_RANKED_LENGTH = (1 << (63 - ID_BITS)) - 1;
+
+	private final int maxCandidates;
+	private final int maxTitles;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final NavigableMap<String, Postings> words = new TreeMap<>();
+	private final Map<Long, IndexedTitle> titles = new HashMap<>();
+	private final DeletedIds deletedIds = new DeletedIds();
+	private boolean overflowed;
+
+	//wholeWord tells whether the title has the last query word as a whole word, those matches rank first
+	public record TitleMatch(long id, String title, boolean wholeWord) {
+	}
+
+	//The words are the instances used as keys of the index, so they are stored once
+	private record IndexedTitle(String title, String[] words, long version) {
+	}
+
+	//Entries examined by a search are capped, so queries with very common words still answer quickly
+	public TitleIndex(@Value("${movies.search.max-candidates:10000}") int maxCandidates,
+			@Value("${movies.search.max-titles:1000000}") int maxTitles) {
+		this.maxCandidates = maxCandidates;
+		this.maxTitles = maxTitles;
+	}
+
+	public int maxCandidates() {
+		return maxCandidates;
+	}
+
+	//Lower case words without accents, in order of appearance and without duplicates
+	public static List<String> tokenize(String text) {
+		String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+		Set<String> tokens = new LinkedHashSet<>();
+		
+		for (String token : NON_WORD.split(normalized.toLowerCase())) {
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return new ArrayList<>(tokens);
+	}
+
+	private static long entry(long id, String title) {
+		if (id < 0 || id > ID_MASK) {
+			throw new IllegalArgumentException("Movie ID " + id + " can't be indexed");
+		}
+		return ((long) Math.min(title.length(), MAX_RANKED_LENGTH) << ID_BITS) | id;
+	}
+
+	//Adds the movie, or replaces its previous title when it was already indexed
+	public void add(Movie movie) {
+		addAll(List.of(movie));
+	}
+
+	//Each posting list touched gets all its new entries merged in at once
+	public void addAll(Collection<Movie> movies) {
+		lock.writeLock().lock();
+		try {
+			Map<Postings, Postings> additions = new IdentityHashMap<>();
+			
+			for (Movie movie : movies) {
+				if (overflowed) {
+					return;
+				}
+				long version = movie.getVersion() == null ? 0 : movie.getVersion();
+				IndexedTitle indexed = titles.get(movie.getId());
+				if (deletedIds.contains(movie.getId()) || (indexed != null && indexed.version() > version)) {
+					continue;
+				}
+				if (indexed == null && titles.size() >= maxTitles) {
+					overflow();
+					return;
+				}
+				unindex(movie.getId());
+				long entry = entry(movie.getId(), movie.getTitle());
+				List<String> tokens = tokenize(movie.getTitle());
+				String[] titleWords = new String[tokens.size()];
+				
+				for (int i = 0; i < titleWords.length; i++) {
+					Postings postings = words.computeIfAbsent(tokens.get(i), Postings::new);
+					additions.computeIfAbsent(postings, word -> new Postings(word.word)).append(entry);
+					titleWords[i] = postings.word;
+				}
+				titles.put(movie.getId(), new IndexedTitle(movie.getTitle(), titleWords, version));
+			}
+			
+			additions.forEach(Postings::merge);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//The postings collected so far are dropped with the rest of the index
+	private void overflow() {
+		words.clear();
+		titles.clear();
+		overflowed = true;
+		log.warning("Title index dropped, the catalog has more than " + maxTitles + " movies. Title searches go to the database");
+	}
+
+	public void remove(Long id) {
+		lock.writeLock().lock();
+		try {
+			deletedIds.add(id);
+			unindex(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			words.clear();
+			titles.clear();
+			overflowed = false;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return titles.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//False once the index went past maxTitles, its searches then find nothing
+	public boolean isComplete() {
+		lock.readLock().lock();
+		try {
+			return !overflowed;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void unindex(Long id) {
+		IndexedTitle indexed = titles.remove(id);
+		if (indexed == null) {
+			return;
+		}
+		
+		long entry = entry(id, indexed.title());
+		for (String word : indexed.words()) {
+			Postings postings = words.get(word);
+			if (postings != null && postings.remove(entry) && postings.size == 0) {
+				words.remove(word);
+			}
+		}
+	}
+
+	//Returns up to limit movies whose titles contain every whole word of the query and a word starting with its last word
+	public List<TitleMatch> search(String query, int limit) {
+		List<String> tokens = tokenize(query);
+		if (tokens.isEmpty() || limit <= 0) {
+			return List.of();
+		}
+		
+		String prefix = tokens.get(tokens.size() - 1);
+		List<String> wholeWords = tokens.subList(0, tokens.size() - 1);
+		
+		lock.readLock().lock();
+		try {
+			return wholeWords.isEmpty() ? matchPrefix(prefix, limit) : matchWords(wholeWords, prefix, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//Applies the matching and ranking of search to movies found elsewhere, in the order of the index
+	public static List<TitleMatch> rank(String query, Collection<Movie> movies, int limit) {
+		List<String> tokens = tokenize(query);
+		if (tokens.isEmpty() || limit <= 0) {
+			return List.of();
+		}
+		
+		String prefix = tokens.get(tokens.size() - 1);
+		String[] required = tokens.subList(0, tokens.size() - 1).toArray(String[]::new);
+		List<Movie> ranked = movies.stream()
+				.sorted(Comparator.comparingLong((Movie movie) -> entry(movie.getId(), movie.getTitle())))
+				.toList();
+		List<TitleMatch> wholeWordMatches = new ArrayList<>(limit);
+		List<TitleMatch> prefixMatches = new ArrayList<>(limit);
+		
+		for (int i = 0; i < ranked.size() && wholeWordMatches.size() < limit; i++) {
+			Movie movie = ranked.get(i);
+			int prefixMatch = prefixMatch(tokenize(movie.getTitle()).toArray(String[]::new), required, prefix);
+			
+			if (prefixMatch == 2) {
+				wholeWordMatches.add(new TitleMatch(movie.getId(), movie.getTitle(), true));
+			} else if (prefixMatch == 1 && prefixMatches.size() < limit) {
+				prefixMatches.add(new TitleMatch(movie.getId(), movie.getTitle(), false));
+			}
+		}
+		
+		wholeWordMatches.addAll(prefixMatches.subList(0, Math.min(prefixMatches.size(), limit - wholeWordMatches.size())));
+		return wholeWordMatches;
+	}
+
+	//The movies with the prefix as a whole word come first, in the order of its posting list. The rest are the
+	//best of the first limit entries of every other word starting with the prefix
+	private List<TitleMatch> matchPrefix(String prefix, int limit) {
+		List<TitleMatch> matches = new ArrayList<>(limit);
+		Postings exact = words.get(prefix);
+		
+		for (int i = 0; exact != null && i < exact.size && matches.size() < limit; i++) {
+			matches.add(match(exact.entries[i], true));
+		}
+		if (matches.size() == limit) {
+			return matches;
+		}
+		
+		//the worst of the best entries at the head
+		PriorityQueue<Long> best = new PriorityQueue<>(limit + 1, (a, b) -> Long.compare(b, a));
+		int examined = 0;
+		
+		for (Postings postings : words.subMap(prefix, false, prefix + Character.MAX_VALUE, false).values()) {
+			for (int i = 0; i < postings.size && i < limit; i++) {
+				long entry = postings.entries[i];
+				if (++examined > maxCandidates) {
+					return complete(matches, best, limit);
+				}
+				if (best.size() == limit && entry >= best.peek()) {
+					break;
+				}
+				if (!best.contains(entry) && (exact == null || !exact.contains(entry))) {
+					best.offer(entry);
+					if (best.size() > limit) {
+						best.poll();
+					}
+				}
+			}
+		}
+		return complete(matches, best, limit);
+	}
+
+	private List<TitleMatch> complete(List<TitleMatch> matches, PriorityQueue<Long> best, int limit) {
+		long[] entries = best.stream().mapToLong(Long::longValue).sorted().toArray();
+		for (int i = 0; i < entries.length && matches.size() < limit; i++) {
+			matches.add(match(entries[i], false));
+		}
+		return matches;
+	}
+
+	//Walks the shortest posting list of the whole words in ranking order and checks the other words on each title
+	private List<TitleMatch> matchWords(List<String> wholeWords, String prefix, int limit) {
+		Postings shortest = null;
+		String[] required = new String[wholeWords.size()];
+		
+		for (int i = 0; i < required.length; i++) {
+			Postings postings = words.get(wholeWords.get(i));
+			if (postings == null) {
+				return List.of();
+			}
+			required[i] = postings.word;
+			if (shortest == null || postings.size < shortest.size) {
+				shortest = postings;
+			}
+		}
+		
+		List<TitleMatch> wholeWordMatches = new ArrayList<>(limit);
+		List<TitleMatch> prefixMatches = new ArrayList<>(limit);
+		
+		for (int i = 0; i < shortest.size && i < maxCandidates && wholeWordMatches.size() < limit; i++) {
+			long id = shortest.entries[i] & ID_MASK;
+			String[] titleWords = titles.get(id).words();
+			int prefixMatch = prefixMatch(titleWords, required, prefix);
+			
+			if (prefixMatch == 2) {
+				wholeWordMatches.add(new TitleMatch(id, titles.get(id).title(), true));
+			} else if (prefixMatch == 1 && prefixMatches.size() < limit) {
+				prefixMatches.add(new TitleMatch(id, titles.get(id).title(), false));
+			}
+		}
+		
+		wholeWordMatches.addAll(prefixMatches.subList(0, Math.min(prefixMatches.size(), limit - wholeWordMatches.size())));
+		return wholeWordMatches;
+	}
+
+	//0 when the title misses a required word or the prefix, 1 when a title word starts with the prefix,
+	//2 when a title word is the prefix
+	private static int prefixMatch(String[] titleWords, String[] required, String prefix) {
+		for (String word : required) {
+			boolean found = false;
+			for (String titleWord : titleWords) {
+				//the words of the index are shared instances, so equals mostly stops at the identity check
+				if (titleWord.equals(word)) {
+					found = true;
+					break;
+				}
+			}
+			if (!found) {
+				return 0;
+			}
+		}
+		
+		int match = 0;
+		for (String titleWord : titleWords) {
+			if (titleWord.equals(prefix)) {
+				return 2;
+			}
+			if (titleWord.startsWith(prefix)) {
+				match = 1;
+			}
+		}
+		return match;
+	}
+
+	private TitleMatch match(long entry, boolean wholeWord) {
+		long id = entry & ID_MASK;
+		return new TitleMatch(id, titles.get(id).title(), wholeWord);
+	}
+
+	//Sorted posting entries of a word in a growable primitive array
+	private static final class Postings {
+
+		private final String word;
+		private long[] entries = new long[1];
+		private int size;
+
+		Postings(String word) {
+			this.word = word;
+		}
+
+		//Adds an entry without keeping the order, only used to collect the additions to merge
+		void append(long entry) {
+			if (size == entries.length) {
+				entries = Arrays.copyOf(entries, size + (size >> 1) + 1);
+			}
+			entries[size++] = entry;
+		}
+
+		//Merges the additions from the end, so the entries are moved at most once
+		void merge(Postings additions) {
+			long[] added = Arrays.copyOf(additions.entries, additions.size);
+			Arrays.sort(added);
+			
+			if (size + added.length > entries.length) {
+				entries = Arrays.copyOf(entries, size + added.length + (size >> 3));
+			}
+			
+			int i = size - 1;
+			int j = added.length - 1;
+			int k = size + added.length - 1;
+			while (j >= 0) {
+				entries[k--] = i >= 0 && entries[i] > added[j] ? entries[i--] : added[j--];
+			}
+			size += added.length;
+		}
+
+		boolean remove(long entry) {
+			int index = Arrays.binarySearch(entries, 0, size, entry);
+			if (index < 0) {
+				return false;
+			}
+			
+			System.arraycopy(entries, index + 1, entries, index, size - index - 1);
+			size--;
+			if (size < entries.length / 4) {
+				entries = Arrays.copyOf(entries, Math.max(size * 2, 1));
+			}
+			return true;
+		}
+
+		boolean contains(long entry) {
+			return Arrays.binarySearch(entries, 0, size, entry) >= 0;
+		}
+	}
+}
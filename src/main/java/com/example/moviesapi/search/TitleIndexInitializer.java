@@ -0,0 +1,47 @@
+package com.example.moviesapi.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.repository.MovieRepository;
+
+//Fills the title index with the movies already in the database. It runs once every bean is created and
+//before the web server accepts requests, so no write can interleave with the initial load
+@Component
+public class TitleIndexInitializer implements SmartInitializingSingleton {
+
+	private static final Logger log = Logger.getLogger(TitleIndexInitializer.class.getName());
+	private static final int CHUNK_SIZE = 1_000;
+
+	private final MovieRepository movieRepository;
+	private final TitleIndex titleIndex;
+
+	public TitleIndexInitializer(MovieRepository movieRepository, TitleIndex titleIndex) {
+		this.movieRepository = movieRepository;
+		this.titleIndex = titleIndex;
+	}
+
+	//Streams the table instead of loading it with findAll, the movies are indexed in chunks
+	@Override
+	public void afterSingletonsInstantiated() {
+		List<Movie> chunk = new ArrayList<>(CHUNK_SIZE);
+		
+		movieRepository.streamAll(movie -> {
+			chunk.add(movie);
+			if (chunk.size() == CHUNK_SIZE) {
+				titleIndex.addAll(chunk);
+				chunk.clear();
+			}
+		});
+		titleIndex.addAll(chunk);
+		
+		if (titleIndex.isComplete()) {
+			log.info("Title index built with " + titleIndex.size() + " movies");
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package com.example.moviesapi.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.example.moviesapi.model.ImportReport;
+
+public interface MovieImportService {
+    ImportReport importMovies(InputStream json) throws IOException;
+}
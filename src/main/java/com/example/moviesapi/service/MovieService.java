@@ -2,8 +2,16 @@ package com.example.moviesapi.service;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.example.moviesapi.model.BulkOutcome;
 import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.model.MovieBatch;
+import com.example.moviesapi.model.MoviePage;
+import com.example.moviesapi.model.MovieQuery;
+import com.example.moviesapi.model.MovieQuery.SortField;
+import com.example.moviesapi.model.YearStats;
+import com.example.moviesapi.search.TitleIndex.TitleMatch;
 
 public interface MovieService {
     Movie create(Movie movie);
@@ -12,13 +20,37 @@ public interface MovieService {
 
     Movie findById(Long id);
 
+    MovieBatch findAllById(List<Long> ids);
+
     List<Movie> findAll();
 
+    MoviePage findPage(Long after, int limit);
+
+    void streamAll(Consumer<Movie> action);
+
     List<Movie> findByLaunchDate(LocalDate launchDate);
 
+    List<Movie> findByQuery(MovieQuery query);
+
+    List<Movie> findTop(SortField by, int n);
+
+    List<YearStats> findYearStats();
+
+    List<Movie> searchByTitle(String query, int limit);
+
+    List<TitleMatch> autocompleteTitle(String prefix, int limit);
+
     Movie update(Movie movie, Long id);
 
+    Movie update(Movie movie, Long id, long expectedVersion);
+
+    List<BulkOutcome> updateAll(List<Movie> movies);
+
+    String getCollectionVersion();
+
     void delete(Long id);
 
+    List<BulkOutcome> deleteAllById(List<Long> ids);
+
     void deleteAll();
 }
@@ -0,0 +1,168 @@
+package com.example.moviesapi.service.impl;
+
+import com.example.moviesapi.exceptions.PartialWriteException;
+import com.example.moviesapi.model.ImportReport;
+import com.example.moviesapi.model.ImportReport.RowError;
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.service.MovieImportService;
+import com.example.moviesapi.service.MovieService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Reads a JSON array or an NDJSON stream of movies one movie at a time, validates each one as it arrives
+//and creates the valid ones in batches, so only one batch of movies is held in memory whatever the upload size.
+//A batch the database rejects doesn't stop the import: its rows that weren't committed are created one at a time,
+//and the rows that still fail are reported like invalid ones
+@Service
+public class MovieImportServiceImpl implements MovieImportService {
+
+    private static final Map<String, String> FORMAT_ERRORS = Map.of(
+    		"launchDate", "Launch date must be in the format yyyy-MM-dd",
+    		"rating", "Rating must be a number between 0.0 and 10.0",
+    		"revenue", "Revenue must be a number");
+
+    private final MovieService movieService;
+    private final ObjectReader movieReader;
+    private final Validator validator;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public MovieImportServiceImpl(MovieService movieService, ObjectMapper objectMapper, Validator validator,
+    		@Value("${movies.batch-size:500}") int batchSize,
+    		@Value("${movies.import.max-reported-errors:100}") int maxReportedErrors) {
+        this.movieService = movieService;
+        this.movieReader = objectMapper.readerFor(Movie.class);
+        this.validator = validator;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    @Override
+    public ImportReport importMovies(InputStream json) throws IOException {
+        List<Movie> batch = new ArrayList<>(batchSize);
+        //the row index of each movie of the batch
+        List<Long> rows = new ArrayList<>(batchSize);
+        Progress progress = new Progress();
+        long index = 0;
+        String aborted = null;
+        
+        try (MappingIterator<Movie> movies = movieReader.readValues(json)) {
+        	while (true) {
+        		Map<String, String> fieldErrors;
+        		
+        		try {
+        			if (!movies.hasNextValue()) {
+        				break;
+        			}
+        			fieldErrors = validate(movies.nextValue(), batch);
+        			if (fieldErrors.isEmpty()) {
+        				rows.add(index);
+        			}
+        			
+        		} catch (JsonMappingException e) {
+        			//the iterator skips the rest of the malformed movie, so the import goes on with the next one
+        			fieldErrors = formatErrors(e);
+        			
+        		} catch (JsonProcessingException e) {
+        			aborted = "Malformed JSON after row " + index + ": " + e.getOriginalMessage();
+        			break;
+        		}
+        		
+        		if (!fieldErrors.isEmpty()) {
+        			progress.reject(index, fieldErrors);
+        		}
+        		
+        		if (batch.size() == batchSize) {
+        			flush(batch, rows, progress);
+        		}
+        		index++;
+        	}
+        }
+        
+        flush(batch, rows, progress);
+        return new ImportReport(progress.imported, progress.failed, progress.errors, aborted);
+    }
+
+    //Adds the movie to the batch when it is valid, otherwise returns its field errors
+    private Map<String, String> validate(Movie movie, List<Movie> batch) {
+        Map<String, String> fieldErrors = new HashMap<>();
+        
+        for (ConstraintViolation<Movie> violation : validator.validate(movie)) {
+        	fieldErrors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        
+        if (fieldErrors.isEmpty()) {
+        	batch.add(movie);
+        }
+        return fieldErrors;
+    }
+
+    private Map<String, String> formatErrors(JsonMappingException e) {
+        Map<String, String> fieldErrors = new HashMap<>();
+        
+        String field = e.getPath().isEmpty() ? null : e.getPath().get(e.getPath().size() - 1).getFieldName();
+        fieldErrors.put(field != null ? field : "movie", FORMAT_ERRORS.getOrDefault(field, e.getOriginalMessage()));
+        return fieldErrors;
+    }
+
+    private void flush(List<Movie> batch, List<Long> rows, Progress progress) {
+        if (batch.isEmpty()) {
+        	return;
+        }
+        
+        try {
+        	progress.imported += movieService.createAll(batch).size();
+        } catch (RuntimeException e) {
+        	//the chunks committed before the failure stay imported
+        	int committed = e instanceof PartialWriteException partial ? partial.getCreated().size() : 0;
+        	progress.imported += committed;
+        	for (int i = committed; i < batch.size(); i++) {
+        		createOne(batch.get(i), rows.get(i), progress);
+        	}
+        }
+        batch.clear();
+        rows.clear();
+    }
+
+    private void createOne(Movie movie, long row, Progress progress) {
+        try {
+        	movieService.create(movie);
+        	progress.imported++;
+        } catch (DataIntegrityViolationException e) {
+        	progress.reject(row, Map.of("movie", "The movie was rejected by the database, for example a value is longer than its column"));
+        } catch (RuntimeException e) {
+        	progress.reject(row, Map.of("movie", "The movie could not be stored"));
+        }
+    }
+
+    //Counts of the import so far, and the first rejected rows
+    private final class Progress {
+    	private long imported;
+    	private long failed;
+    	private final List<RowError> errors = new ArrayList<>();
+    	
+    	void reject(long row, Map<String, String> fieldErrors) {
+    		failed++;
+    		if (errors.size() < maxReportedErrors) {
+    			errors.add(new RowError(row, fieldErrors));
+    		}
+    	}
+    }
+}
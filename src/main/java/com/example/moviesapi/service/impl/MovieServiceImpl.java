@@ -1,65 +1,456 @@
 package com.example.moviesapi.service.impl;
 
+import com.example.moviesapi.cache.MovieCache;
+import com.example.moviesapi.cache.MovieJsonCache;
+import com.example.moviesapi.cache.SingleFlight;
+import com.example.moviesapi.cache.YearStatsSummary;
+import com.example.moviesapi.changes.ChangeLog;
 import com.example.moviesapi.exceptions.MovieNotFoundException;
+import com.example.moviesapi.exceptions.PartialWriteException;
+import com.example.moviesapi.exceptions.MoviePreconditionFailedException;
+import com.example.moviesapi.model.BulkOutcome;
+import com.example.moviesapi.model.BulkOutcome.Status;
 import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.model.MovieBatch;
+import com.example.moviesapi.model.MoviePage;
+import com.example.moviesapi.model.MovieQuery;
+import com.example.moviesapi.model.MovieQuery.SortField;
+import com.example.moviesapi.model.MovieUpdate;
+import com.example.moviesapi.model.YearStats;
 import com.example.moviesapi.repository.MovieRepository;
+import com.example.moviesapi.search.TitleIndex;
+import com.example.moviesapi.search.TitleIndex.TitleMatch;
+import com.example.moviesapi.snapshot.MovieSnapshot;
 import com.example.moviesapi.service.MovieService;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 @Service
 public class MovieServiceImpl implements MovieService {
 
+    private static final Logger log = Logger.getLogger(MovieServiceImpl.class.getName());
+
     private final MovieRepository movieRepository;
+    private final MovieCache movieCache;
+    private final MovieJsonCache movieJsonCache;
+    private final YearStatsSummary yearStatsSummary;
+    private final TitleIndex titleIndex;
+    private final MovieSnapshot movieSnapshot;
+    private final SingleFlight singleFlight;
+    private final ChangeLog changeLog;
+    private final int maxPageSize;
+    
+    //Table-wide change counter, bumped after every committed write. The epoch of the change log tells apart
+    //counters of different runs, since the in-memory database starts empty every time
+    private final AtomicLong changeCounter = new AtomicLong();
+    //Held from the commit of a statement or of a chunk of a bulk write until its change log entries are appended,
+    //so the change log lists the writes in the order they committed. A bulk write only holds it chunk by chunk
+    private final ReentrantLock commitOrder = new ReentrantLock();
 
-    public MovieServiceImpl(MovieRepository movieRepository) {
+    public MovieServiceImpl(MovieRepository movieRepository, MovieCache movieCache, MovieJsonCache movieJsonCache,
+    		YearStatsSummary yearStatsSummary, TitleIndex titleIndex, MovieSnapshot movieSnapshot, SingleFlight singleFlight,
+    		ChangeLog changeLog, @Value("${movies.page.max-size:1000}") int maxPageSize) {
         this.movieRepository = movieRepository;
+        this.movieCache = movieCache;
+        this.movieJsonCache = movieJsonCache;
+        this.yearStatsSummary = yearStatsSummary;
+        this.titleIndex = titleIndex;
+        this.movieSnapshot = movieSnapshot;
+        this.singleFlight = singleFlight;
+        this.changeLog = changeLog;
+        this.maxPageSize = maxPageSize;
     }
 
     @Override
     public Movie create(Movie movie) {
-        return movieRepository.create(movie); 
+        commitOrder.lock();
+        try {
+        	Movie createdMovie = yearStatsSummary.create(() -> movieRepository.create(movie), List::of);
+        	cacheCreated(List.of(createdMovie));
+        	return createdMovie;
+        } finally {
+        	commitOrder.unlock();
+        }
     }
 
+    //Chunks are committed one after the other, and the caches and the change log follow each chunk once it has committed.
+    //A failure after some chunks have committed is reported with the movies that were created
     @Override
     public List<Movie> createAll(List<Movie> movies) {
-        return movieRepository.createAll(movies);
+        List<Movie> committed = new ArrayList<>();
+        try {
+        	return yearStatsSummary.create(() -> movieRepository.createAll(movies, commitOrder, chunk -> {
+        		committed.addAll(chunk);
+        		cacheCreated(chunk);
+        	}), created -> created);
+        } catch (RuntimeException e) {
+        	if (committed.isEmpty()) {
+        		throw e;
+        	}
+        	throw new PartialWriteException(committed, movies.size(), e);
+        }
+    }
+
+    private void cacheCreated(List<Movie> createdMovies) {
+        createdMovies.forEach(movieCache::put);
+        titleIndex.addAll(createdMovies);
+        movieSnapshot.putAll(createdMovies);
+        movieJsonCache.invalidateCreated(createdMovies);
+        singleFlight.forgetAll();
+        changeLog.created(createdMovies);
+        changeCounter.incrementAndGet();
     }
 
+    //In snapshot read mode the lookups by id, the full listings and the launch date lookups are answered
+    //from the in-memory snapshot instead of the cache and the database. Otherwise concurrent cache misses
+    //and launch date lookups for the same key share a single query
     @Override
     public Movie findById(Long id) {
-        return movieRepository.findById(id).orElseThrow(() -> new MovieNotFoundException(id));
+        return lookup(id).orElseThrow(() -> new MovieNotFoundException(id));
+    }
+
+    private Optional<Movie> lookup(Long id) {
+        if (movieSnapshot.isEnabled()) {
+        	return movieSnapshot.findById(id);
+        }
+        
+        //the cache loads a missing id once for all the concurrent lookups of it
+        return movieCache.get(id, movieRepository::findById);
+    }
+
+    //Ids missing from the cache are read together, with one query per chunk of ids, and cached
+    @Override
+    public MovieBatch findAllById(List<Long> ids) {
+        //null until the movie is looked up in the database
+        Map<Long, Optional<Movie>> lookups = new LinkedHashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : ids) {
+        	if (!lookups.containsKey(id)) {
+        		Optional<Movie> movie = movieSnapshot.isEnabled() ? movieSnapshot.findById(id) : movieCache.getIfPresent(id);
+        		lookups.put(id, movie);
+        		if (movie == null) {
+        			misses.add(id);
+        		}
+        	}
+        }
+        
+        if (!misses.isEmpty()) {
+        	Map<Long, Movie> loaded = new HashMap<>();
+        	movieRepository.findAllById(misses).forEach(movie -> loaded.put(movie.getId(), movie));
+        	for (Long id : misses) {
+        		Optional<Movie> movie = Optional.ofNullable(loaded.get(id));
+        		movieCache.putIfAbsent(id, movie);
+        		lookups.put(id, movie);
+        	}
+        }
+        
+        List<Movie> movies = new ArrayList<>(lookups.size());
+        List<Long> missing = new ArrayList<>();
+        lookups.forEach((id, movie) -> movie.ifPresentOrElse(movies::add, () -> missing.add(id)));
+        return new MovieBatch(movies, missing);
     }
 
     @Override
     public List<Movie> findAll() {
-        return movieRepository.findAll();
+        return movieSnapshot.isEnabled() ? movieSnapshot.findAll() : movieRepository.findAll();
+    }
+
+    @Override
+    public MoviePage findPage(Long after, int limit) {
+    	int pageSize = Math.min(Math.max(limit, 1), maxPageSize);
+    	List<Movie> movies = movieSnapshot.isEnabled()
+    			? movieSnapshot.findPage(after, pageSize)
+    			: movieRepository.findPage(after, pageSize);
+    	
+    	Long next = movies.size() == pageSize ? movies.get(movies.size() - 1).getId() : null;
+    	return new MoviePage(movies, next);
+    }
+
+    @Override
+    public void streamAll(Consumer<Movie> action) {
+        if (!movieSnapshot.isEnabled()) {
+        	movieRepository.streamAll(action);
+        	return;
+        }
+        
+        //pages are copied out of the snapshot, so writes aren't blocked while the movies are consumed
+        List<Movie> page = movieSnapshot.findPage(null, maxPageSize);
+        while (!page.isEmpty()) {
+        	page.forEach(action);
+        	page = movieSnapshot.findPage(page.get(page.size() - 1).getId(), maxPageSize);
+        }
     }
 
     @Override
     public List<Movie> findByLaunchDate(LocalDate launchDate) {
-        return movieRepository.findByLaunchDate(launchDate);
+        return movieSnapshot.isEnabled()
+        		? movieSnapshot.findByLaunchDate(launchDate)
+        		: singleFlight.execute(launchDate, () -> movieRepository.findByLaunchDate(launchDate));
+    }
+
+    @Override
+    public List<Movie> findByQuery(MovieQuery query) {
+        return movieRepository.findByQuery(query.withLimit(Math.min(Math.max(query.limit(), 1), maxPageSize)));
+    }
+
+    @Override
+    public List<Movie> findTop(SortField by, int n) {
+        return findByQuery(new MovieQuery(null, null, null, null, null, by, true, n));
+    }
+
+    @Override
+    public List<YearStats> findYearStats() {
+        return yearStatsSummary.get(movieRepository::findYearStats, movieRepository::findYearStats);
+    }
+
+    //Movies deleted since they were matched are left out. Past movies.search.max-titles the index is dropped and
+    //the movies matched in the database are returned as read
+    @Override
+    public List<Movie> searchByTitle(String query, int limit) {
+        if (!titleIndex.isComplete()) {
+        	Map<Long, Movie> candidates = titleCandidates(query).stream()
+        			.collect(Collectors.toMap(Movie::getId, Function.identity()));
+        	return TitleIndex.rank(query, candidates.values(), Math.min(limit, maxPageSize)).stream()
+        			.map(match -> candidates.get(match.id()))
+        			.toList();
+        }
+        return titleIndex.search(query, Math.min(limit, maxPageSize)).stream()
+        		.map(match -> lookup(match.id()))
+        		.flatMap(Optional::stream)
+        		.toList();
+    }
+
+    @Override
+    public List<TitleMatch> autocompleteTitle(String prefix, int limit) {
+        if (!titleIndex.isComplete()) {
+        	return TitleIndex.rank(prefix, titleCandidates(prefix), Math.min(limit, maxPageSize));
+        }
+        return titleIndex.search(prefix, Math.min(limit, maxPageSize));
+    }
+
+    //The database only narrows the titles down to those containing every word, rank applies the rules of the index
+    private List<Movie> titleCandidates(String query) {
+        List<String> words = TitleIndex.tokenize(query);
+        return words.isEmpty() ? List.of() : movieRepository.findByTitleWords(words, titleIndex.maxCandidates());
     }
 
     @Override
     public Movie update(Movie movie, Long id) {
-        return movieRepository.update(movie, id).orElseThrow(() -> new MovieNotFoundException(id));
+        commitOrder.lock();
+        try {
+        	return updated(id, yearStatsSummary.change(() -> movieRepository.update(movie, id, yearStatsSummary.isEnabled()).map(this::statsUpdated)));
+        } finally {
+        	commitOrder.unlock();
+        }
+    }
+
+    @Override
+    public Movie update(Movie movie, Long id, long expectedVersion) {
+        commitOrder.lock();
+        try {
+        	Optional<Movie> updatedMovie = yearStatsSummary.change(
+        			() -> movieRepository.update(movie, id, expectedVersion, yearStatsSummary.isEnabled()).map(this::statsUpdated));
+        
+        	//telling a stale version apart from a missing movie costs an extra read, but only when the update fails
+        	if(updatedMovie.isEmpty() && movieRepository.findById(id).isPresent()) {
+        		throw new MoviePreconditionFailedException(id);
+        	}
+        	return updated(id, updatedMovie);
+        } finally {
+        	commitOrder.unlock();
+        }
+    }
+
+    //the previous row is only read while the year stats summary is enabled
+    private Movie statsUpdated(MovieUpdate update) {
+        if (update.previous() != null) {
+        	yearStatsSummary.updated(update.previous(), update.updated());
+        }
+        return update.updated();
+    }
+
+    private Movie updated(Long id, Optional<Movie> updatedMovie) {
+        Movie movie = updatedMovie.orElseThrow(() -> {
+        	movieCache.putMissing(id);
+        	return new MovieNotFoundException(id);
+        });
+        
+        cacheUpdated(movie);
+        singleFlight.forgetAll();
+        changeCounter.incrementAndGet();
+        return movie;
+    }
+
+    //Chunks are committed one after the other, and the caches and the change log follow each chunk once it has committed.
+    //When a chunk fails after others have committed, the movies of the chunks that didn't commit are reported as FAILED
+    @Override
+    public List<BulkOutcome> updateAll(List<Movie> movies) {
+        Map<Long, Movie> updatedMovies = new HashMap<>();
+        //the chunks are consecutive, so the movies before this index were committed
+        AtomicInteger committed = new AtomicInteger();
+        try {
+        	yearStatsSummary.change(() -> {
+        		movieRepository.updateAll(movies, yearStatsSummary.isEnabled(), commitOrder, (chunk, updates) -> {
+        			committed.addAndGet(chunk.size());
+        			if (!updates.isEmpty()) {
+        				updates.forEach(update -> {
+        					Movie movie = statsUpdated(update);
+        					updatedMovies.put(movie.getId(), movie);
+        					cacheUpdated(movie);
+        				});
+        				singleFlight.forgetAll();
+        				changeCounter.incrementAndGet();
+        			}
+        		});
+        		return null;
+        	});
+        } catch (RuntimeException e) {
+        	partialFailure(committed.get(), movies.size(), e);
+        }
+        
+        List<BulkOutcome> outcomes = new ArrayList<>(movies.size());
+        for (int i = 0; i < movies.size(); i++) {
+        	Long id = movies.get(i).getId();
+        	Movie updatedMovie = updatedMovies.get(id);
+        	if (i >= committed.get()) {
+        		outcomes.add(new BulkOutcome(id, Status.FAILED, null));
+        	} else if (updatedMovie == null) {
+        		movieCache.putMissing(id);
+        		outcomes.add(new BulkOutcome(id, Status.NOT_FOUND, null));
+        	} else {
+        		outcomes.add(new BulkOutcome(id, Status.UPDATED, updatedMovie));
+        	}
+        }
+        return outcomes;
+    }
+
+    //Nothing to report when no chunk committed, the request failed as a whole
+    private static void partialFailure(int committed, int requested, RuntimeException e) {
+        if (committed == 0) {
+        	throw e;
+        }
+        log.log(Level.WARNING, "Bulk write failed after " + committed + " of " + requested + " rows were committed", e);
+    }
+
+    private void cacheUpdated(Movie movie) {
+        movieCache.put(movie);
+        titleIndex.add(movie);
+        movieSnapshot.put(movie);
+        movieJsonCache.invalidate(movie);
+        changeLog.updated(movie);
     }
 
     @Override
     public void delete(Long id) {
-    	if(movieRepository.findById(id).isEmpty()) {
-    		throw new MovieNotFoundException(id);
-    	} 
+        commitOrder.lock();
+        try {
+        	Optional<Movie> deleted = yearStatsSummary.change(() -> movieRepository.delete(id).map(movie -> {
+        		yearStatsSummary.deleted(movie);
+        		return movie;
+        	}));
+        	singleFlight.forgetAll();
     	
-    	movieRepository.delete(id);  	
+        	//an id that was never created isn't marked as deleted, it can still be handed out to a new movie
+        	if(deleted.isEmpty()) {
+        		movieCache.putMissing(id);
+        		throw new MovieNotFoundException(id);
+        	}
+        	cacheDeleted(id);
+        	changeLog.deleted(deleted.get());
+        	changeCounter.incrementAndGet();
+        } finally {
+        	commitOrder.unlock();
+        }
+    }
+
+    @Override
+    public List<BulkOutcome> deleteAllById(List<Long> ids) {
+    	List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+    	Set<Long> committedIds = new HashSet<>();
+    	Set<Long> deletedIds = new HashSet<>();
+    	try {
+    		yearStatsSummary.change(() -> {
+    			movieRepository.deleteAllById(distinctIds, commitOrder, (chunk, deleted) -> {
+    				committedIds.addAll(chunk);
+    				if (!deleted.isEmpty()) {
+    					deleted.forEach(movie -> {
+    						yearStatsSummary.deleted(movie);
+    						deletedIds.add(movie.getId());
+    						cacheDeleted(movie.getId());
+    						changeLog.deleted(movie);
+    					});
+    					singleFlight.forgetAll();
+    					changeCounter.incrementAndGet();
+    				}
+    			});
+    			return null;
+    		});
+    	} catch (RuntimeException e) {
+    		partialFailure(committedIds.size(), distinctIds.size(), e);
+    	}
+    	
+    	return ids.stream().map(id -> {
+    		if (!committedIds.contains(id)) {
+    			return new BulkOutcome(id, Status.FAILED, null);
+    		}
+    		if (!deletedIds.contains(id)) {
+    			movieCache.putMissing(id);
+    			return new BulkOutcome(id, Status.NOT_FOUND, null);
+    		}
+    		return new BulkOutcome(id, Status.DELETED, null);
+    	}).toList();
+    }
+
+    private void cacheDeleted(Long id) {
+    	movieCache.putMissing(id);
+    	titleIndex.remove(id);
+    	movieSnapshot.remove(id);
+    	movieJsonCache.invalidate(id);
     }
 
     @Override
     public void deleteAll() {
-        movieRepository.deleteAll();
+        commitOrder.lock();
+        try {
+        	yearStatsSummary.change(() -> {
+        		movieRepository.deleteAll();
+        		yearStatsSummary.deletedAll();
+        		return null;
+        	});
+        	movieCache.invalidateAll();
+        	titleIndex.clear();
+        	movieSnapshot.clear();
+        	movieJsonCache.invalidateAll();
+        	singleFlight.forgetAll();
+        	changeLog.deletedAll();
+        	changeCounter.incrementAndGet();
+        } finally {
+        	commitOrder.unlock();
+        }
+    }
+
+    @Override
+    public String getCollectionVersion() {
+        return changeLog.epoch() + "-" + changeCounter.get();
     }
 }
@@ -0,0 +1,315 @@
+package com.example.moviesapi.snapshot;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.moviesapi.cache.DeletedIds;
+import com.example.moviesapi.model.Movie;
+
+//Columnar copy of the whole catalog for the snapshot read mode (movies.read-mode=snapshot). Every field is
+//a primitive array indexed by row, rows are sorted by id, and the titles are UTF-8 bytes in one shared array,
+//so a movie costs 36 bytes plus its title instead of the 8 objects behind a Movie. Movies are only
+//materialized when they are read. Deleted rows are flagged and dropped once they are half of the rows.
+//Writes can reach the snapshot out of order, so a movie is never replaced by an older version or brought back once deleted
+@Component
+public class MovieSnapshot {
+
+	private static final int INITIAL_CAPACITY = 1_024;
+
+	private final boolean enabled;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private long[] ids;
+	private int[] launchDays;
+	private short[] ratingTenths;
+	private long[] revenues;
+	private long[] versions;
+	private int[] titleStarts;
+	private short[] titleLengths;
+	private byte[] titles;
+	private int titlesUsed;
+	private int titlesLive;
+	private final BitSet deleted = new BitSet();
+	private final DeletedIds deletedIds = new DeletedIds();
+	private int size;
+	private int deletedCount;
+
+	public MovieSnapshot(@Value("${movies.read-mode:database}") String readMode) {
+		this.enabled = readMode.equalsIgnoreCase("snapshot");
+		clearColumns();
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	//Adds the movies, or replaces the rows of the ones already in the snapshot
+	public void putAll(Collection<Movie> movies) {
+		if (!enabled) {
+			return;
+		}
+		
+		lock.writeLock().lock();
+		try {
+			movies.forEach(this::store);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void put(Movie movie) {
+		putAll(List.of(movie));
+	}
+
+	public void remove(Long id) {
+		if (!enabled) {
+			return;
+		}
+		
+		lock.writeLock().lock();
+		try {
+			deletedIds.add(id);
+			int row = row(id);
+			if (row >= 0 && !deleted.get(row)) {
+				deleted.set(row);
+				deletedCount++;
+				titlesLive -= titleLengths[row];
+				compactIfSparse();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void clear() {
+		if (!enabled) {
+			return;
+		}
+		
+		lock.writeLock().lock();
+		try {
+			clearColumns();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size - deletedCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public Optional<Movie> findById(Long id) {
+		lock.readLock().lock();
+		try {
+			int row = row(id);
+			return row >= 0 && !deleted.get(row) ? Optional.of(movie(row)) : Optional.empty();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public List<Movie> findAll() {
+		lock.readLock().lock();
+		try {
+			List<Movie> movies = new ArrayList<>(size - deletedCount);
+			for (int row = deleted.nextClearBit(0); row < size; row = deleted.nextClearBit(row + 1)) {
+				movies.add(movie(row));
+			}
+			return movies;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//Same contract as MovieRepository.findPage: up to limit movies with an id greater than afterId, ordered by id
+	public List<Movie> findPage(Long afterId, int limit) {
+		lock.readLock().lock();
+		try {
+			int row = 0;
+			if (afterId != null) {
+				int found = row(afterId);
+				row = found >= 0 ? found + 1 : -(found + 1);
+			}
+			
+			List<Movie> movies = new ArrayList<>(Math.min(limit, size - row));
+			for (row = deleted.nextClearBit(row); row < size && movies.size() < limit; row = deleted.nextClearBit(row + 1)) {
+				movies.add(movie(row));
+			}
+			return movies;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//Scans the launch date column, which is a sequential read of one int per movie
+	public List<Movie> findByLaunchDate(LocalDate launchDate) {
+		int day = (int) launchDate.toEpochDay();
+		
+		lock.readLock().lock();
+		try {
+			List<Movie> movies = new ArrayList<>();
+			for (int row = 0; row < size; row++) {
+				if (launchDays[row] == day && !deleted.get(row)) {
+					movies.add(movie(row));
+				}
+			}
+			return movies;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private int row(long id) {
+		return Arrays.binarySearch(ids, 0, size, id);
+	}
+
+	private Movie movie(int row) {
+		Movie movie = new Movie(ids[row],
+				new String(titles, titleStarts[row], titleLengths[row], StandardCharsets.UTF_8),
+				LocalDate.ofEpochDay(launchDays[row]),
+				BigDecimal.valueOf(ratingTenths[row], 1),
+				revenues[row]);
+		movie.setVersion(versions[row]);
+		return movie;
+	}
+
+	private void store(Movie movie) {
+		long version = movie.getVersion() == null ? 0 : movie.getVersion();
+		if (deletedIds.contains(movie.getId())) {
+			return;
+		}
+		int row = row(movie.getId());
+		
+		if (row < 0) {
+			row = -(row + 1);
+			insertRow(row);
+			ids[row] = movie.getId();
+			
+		} else if (deleted.get(row)) {
+			deleted.clear(row);
+			deletedCount--;
+			
+		} else if (versions[row] > version) {
+			return;
+			
+		} else {
+			titlesLive -= titleLengths[row];
+		}
+		
+		launchDays[row] = (int) movie.getLaunchDate().toEpochDay();
+		//the database keeps one digit after the decimal point
+		ratingTenths[row] = movie.getRating().setScale(1, RoundingMode.HALF_UP).unscaledValue().shortValueExact();
+		revenues[row] = movie.getRevenue();
+		versions[row] = version;
+		
+		//a changed title is appended, the bytes of the previous one are reclaimed by the next compaction
+		byte[] title = movie.getTitle().getBytes(StandardCharsets.UTF_8);
+		if (titlesUsed + title.length > titles.length) {
+			titles = Arrays.copyOf(titles, Math.max(titles.length * 2, titlesUsed + title.length));
+		}
+		System.arraycopy(title, 0, titles, titlesUsed, title.length);
+		titleStarts[row] = titlesUsed;
+		titleLengths[row] = (short) title.length;
+		titlesUsed += title.length;
+		titlesLive += title.length;
+		compactIfSparse();
+	}
+
+	//New ids are the highest ones, so rows are almost always appended and nothing is shifted
+	private void insertRow(int row) {
+		if (size == ids.length) {
+			int capacity = size + (size >> 1);
+			ids = Arrays.copyOf(ids, capacity);
+			launchDays = Arrays.copyOf(launchDays, capacity);
+			ratingTenths = Arrays.copyOf(ratingTenths, capacity);
+			revenues = Arrays.copyOf(revenues, capacity);
+			versions = Arrays.copyOf(versions, capacity);
+			titleStarts = Arrays.copyOf(titleStarts, capacity);
+			titleLengths = Arrays.copyOf(titleLengths, capacity);
+		}
+		
+		if (row < size) {
+			int moved = size - row;
+			System.arraycopy(ids, row, ids, row + 1, moved);
+			System.arraycopy(launchDays, row, launchDays, row + 1, moved);
+			System.arraycopy(ratingTenths, row, ratingTenths, row + 1, moved);
+			System.arraycopy(revenues, row, revenues, row + 1, moved);
+			System.arraycopy(versions, row, versions, row + 1, moved);
+			System.arraycopy(titleStarts, row, titleStarts, row + 1, moved);
+			System.arraycopy(titleLengths, row, titleLengths, row + 1, moved);
+			for (int i = size - 1; i >= row; i--) {
+				deleted.set(i + 1, deleted.get(i));
+			}
+			deleted.clear(row);
+		}
+		size++;
+	}
+
+	private void compactIfSparse() {
+		if ((deletedCount > INITIAL_CAPACITY && deletedCount > size / 2)
+				|| (titlesUsed > INITIAL_CAPACITY * 64 && titlesUsed > titlesLive * 2)) {
+			compact();
+		}
+	}
+
+	//Rewrites the live rows and their titles without the deleted rows and the replaced titles
+	private void compact() {
+		byte[] liveTitles = new byte[titlesUsed];
+		int live = 0;
+		int liveTitlesUsed = 0;
+		
+		for (int row = deleted.nextClearBit(0); row < size; row = deleted.nextClearBit(row + 1)) {
+			ids[live] = ids[row];
+			launchDays[live] = launchDays[row];
+			ratingTenths[live] = ratingTenths[row];
+			revenues[live] = revenues[row];
+			versions[live] = versions[row];
+			System.arraycopy(titles, titleStarts[row], liveTitles, liveTitlesUsed, titleLengths[row]);
+			titleStarts[live] = liveTitlesUsed;
+			titleLengths[live] = titleLengths[row];
+			liveTitlesUsed += titleLengths[row];
+			live++;
+		}
+		
+		titles = Arrays.copyOf(liveTitles, Math.max(liveTitlesUsed, 1));
+		titlesUsed = liveTitlesUsed;
+		titlesLive = liveTitlesUsed;
+		size = live;
+		deleted.clear();
+		deletedCount = 0;
+	}
+
+	private void clearColumns() {
+		ids = new long[INITIAL_CAPACITY];
+		launchDays = new int[INITIAL_CAPACITY];
+		ratingTenths = new short[INITIAL_CAPACITY];
+		revenues = new long[INITIAL_CAPACITY];
+		versions = new long[INITIAL_CAPACITY];
+		titleStarts = new int[INITIAL_CAPACITY];
+		titleLengths = new short[INITIAL_CAPACITY];
+		titles = new byte[INITIAL_CAPACITY * 16];
+		titlesUsed = 0;
+		titlesLive = 0;
+		deleted.clear();
+		size = 0;
+		deletedCount = 0;
+	}
+}
@@ -0,0 +1,46 @@
+package com.example.moviesapi.snapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.repository.MovieRepository;
+
+//Loads the whole table into the snapshot in snapshot read mode, before the web server accepts requests
+@Component
+public class MovieSnapshotInitializer implements SmartInitializingSingleton {
+
+	private static final Logger log = Logger.getLogger(MovieSnapshotInitializer.class.getName());
+	private static final int CHUNK_SIZE = 1_000;
+
+	private final MovieRepository movieRepository;
+	private final MovieSnapshot movieSnapshot;
+
+	public MovieSnapshotInitializer(MovieRepository movieRepository, MovieSnapshot movieSnapshot) {
+		this.movieRepository = movieRepository;
+		this.movieSnapshot = movieSnapshot;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (!movieSnapshot.isEnabled()) {
+			return;
+		}
+		
+		List<Movie> chunk = new ArrayList<>(CHUNK_SIZE);
+		movieRepository.streamAll(movie -> {
+			chunk.add(movie);
+			if (chunk.size() == CHUNK_SIZE) {
+				movieSnapshot.putAll(chunk);
+				chunk.clear();
+			}
+		});
+		movieSnapshot.putAll(chunk);
+		
+		log.info("Movie snapshot loaded with " + movieSnapshot.size() + " movies");
+	}
+}
@@ -0,0 +1,100 @@
+package com.example.moviesapi.web;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+//Jackson converter that records how long each JSON response body takes to serialize and how many bytes it has,
+//tagged by the returned type. The time includes writing to the response, so slow clients show up in it too
+public class MeteredJsonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+	private final MeterRegistry registry;
+	private final Map<String, BodyMeters> meters = new ConcurrentHashMap<>();
+
+	private record BodyMeters(Timer serialization, DistributionSummary size) {
+	}
+
+	public MeteredJsonHttpMessageConverter(ObjectMapper objectMapper, MeterRegistry registry) {
+		super(objectMapper);
+		this.registry = registry;
+	}
+
+	@Override
+	protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+			throws IOException, HttpMessageNotWritableException {
+		
+		BodyMeters bodyMeters = meters.computeIfAbsent(typeName(object, type), this::register);
+		CountingOutputStream body = new CountingOutputStream(outputMessage.getBody());
+		long start = System.nanoTime();
+		
+		super.writeInternal(object, type, new HttpOutputMessage() {
+			@Override
+			public OutputStream getBody() {
+				return body;
+			}
+
+			@Override
+			public HttpHeaders getHeaders() {
+				return outputMessage.getHeaders();
+			}
+		});
+		
+		bodyMeters.serialization().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		bodyMeters.size().record(body.count);
+	}
+
+	//Short generic type name such as List<Movie>, so the tag stays readable and its values few
+	private static String typeName(Object object, Type type) {
+		String name = type != null ? type.getTypeName() : object.getClass().getName();
+		return name.replaceAll("[\\w$]+\\.", "");
+	}
+
+	private BodyMeters register(String type) {
+		return new BodyMeters(
+				Timer.builder("movies.json.serialization")
+						.description("Time to serialize and write a JSON response body")
+						.tag("type", type)
+						.register(registry),
+				DistributionSummary.builder("movies.json.response.size")
+						.description("Size of a JSON response body")
+						.baseUnit("bytes")
+						.tag("type", type)
+						.register(registry));
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		private long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
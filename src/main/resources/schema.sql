@@ -6,5 +6,12 @@ CREATE TABLE IF NOT EXISTS Movie (
     launchDate DATE NOT NULL,
     rating DECIMAL(3,1) NOT NULL,
     revenue BIGINT NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL,
     PRIMARY KEY (id)
-);
\ No newline at end of file
+);
+
+-- launchDate lookups and ranges, with the rating of each movie alongside for combined filters
+CREATE INDEX IF NOT EXISTS idx_movie_launchDate_rating ON Movie (launchDate, rating);
+-- rating and revenue ranges, and top rated and top grossing movies read in index order without sorting the table
+CREATE INDEX IF NOT EXISTS idx_movie_rating_id ON Movie (rating DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_movie_revenue_id ON Movie (revenue DESC, id DESC);
@@ -0,0 +1,125 @@
+package com.example.moviesapi.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.moviesapi.exceptions.IdempotencyKeyReusedException;
+import com.example.moviesapi.exceptions.PartialWriteException;
+import com.example.moviesapi.model.Movie;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+	
+	private IdempotencyStore idempotencyStore;
+	private AtomicInteger inserts;
+	
+	private final Movie movie = new Movie("Pulp Fiction", LocalDate.of(1994, 10, 14), new BigDecimal("8.9"), Long.parseLong("212891598"));
+	
+	@BeforeEach
+	void setUp() {
+		idempotencyStore = new IdempotencyStore(Jackson2ObjectMapperBuilder.json().build(), 100, Duration.ofMinutes(10));
+		inserts = new AtomicInteger();
+	}
+	
+	private Movie insert(Movie movie) {
+		return new Movie((long) inserts.incrementAndGet(), movie.getTitle(), movie.getLaunchDate(), movie.getRating(), movie.getRevenue());
+	}
+	
+	@Test
+	void shouldReplayResultOfFirstRequest() {
+		Movie created = idempotencyStore.execute("create", "key-1", movie, () -> insert(movie));
+		Movie retried = idempotencyStore.execute("create", "key-1", movie, () -> insert(movie));
+		
+		assertSame(created, retried);
+		assertEquals(1, inserts.get());
+	}
+	
+	@Test
+	void shouldScopeKeysByEndpoint() {
+		idempotencyStore.execute("create", "key-1", movie, () -> insert(movie));
+		idempotencyStore.execute("createAll", "key-1", movie, () -> insert(movie));
+		idempotencyStore.execute("create", "key-2", movie, () -> insert(movie));
+		
+		assertEquals(3, inserts.get());
+	}
+	
+	@Test
+	void shouldRejectKeyReusedWithDifferentRequest() {
+		Movie other = new Movie("Goodfellas", LocalDate.of(1990, 11, 23), new BigDecimal("8.7"), 47103483L);
+		idempotencyStore.execute("create", "key-1", movie, () -> insert(movie));
+		
+		assertThrows(IdempotencyKeyReusedException.class,
+				() -> idempotencyStore.execute("create", "key-1", other, () -> insert(other)));
+		assertEquals(1, inserts.get());
+	}
+	
+	@Test
+	void shouldForgetFailedRequests() {
+		assertThrows(IllegalStateException.class, () -> idempotencyStore.execute("create", "key-1", movie, () -> {
+			throw new IllegalStateException("Connection is not available");
+		}));
+		
+		assertEquals(1L, idempotencyStore.execute("create", "key-1", movie, () -> insert(movie)).getId());
+	}
+	
+	@Test
+	void shouldForgetRequestsFailedWithError() {
+		assertThrows(StackOverflowError.class, () -> idempotencyStore.execute("create", "key-1", movie, () -> {
+			throw new StackOverflowError();
+		}));
+		
+		assertEquals(1L, idempotencyStore.execute("create", "key-1", movie, () -> insert(movie)).getId());
+	}
+	
+	@Test
+	void shouldKeepPartlyCreatedLists() {
+		List<Movie> movies = List.of(movie, movie);
+		Supplier<List<Movie>> partlyCreated = () -> {
+			throw new PartialWriteException(List.of(insert(movie)), 2, new IllegalStateException("Connection is not available"));
+		};
+		
+		PartialWriteException first = assertThrows(PartialWriteException.class,
+				() -> idempotencyStore.execute("createAll", "key-1", movies, partlyCreated));
+		PartialWriteException retried = assertThrows(PartialWriteException.class,
+				() -> idempotencyStore.execute("createAll", "key-1", movies, () -> List.of(insert(movie), insert(movie))));
+		
+		assertSame(first, retried);
+		assertEquals(1, inserts.get());
+	}
+	
+	@Test
+	void shouldCoalesceConcurrentDuplicates() throws Exception {
+		CountDownLatch inserting = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		
+		CompletableFuture<Movie> first = CompletableFuture.supplyAsync(() -> idempotencyStore.execute("create", "key-1", movie, () -> {
+			inserting.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return insert(movie);
+		}));
+		inserting.await();
+		CompletableFuture<Movie> duplicate = CompletableFuture.supplyAsync(() -> idempotencyStore.execute("create", "key-1", movie, () -> insert(movie)));
+		
+		Thread.sleep(50);
+		assertFalse(duplicate.isDone());
+		release.countDown();
+		
+		assertSame(first.get(), duplicate.get());
+		assertEquals(1, inserts.get());
+	}
+}
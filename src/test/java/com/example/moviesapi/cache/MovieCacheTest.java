@@ -0,0 +1,96 @@
+package com.example.moviesapi.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.moviesapi.model.Movie;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovieCacheTest {
+	
+	private MovieCache movieCache;
+	private AtomicInteger loads;
+	
+	private final Movie movie = new Movie(1L, "Pulp Fiction", LocalDate.of(1994, 10, 14), new BigDecimal("8.9"), Long.parseLong("212891598"));
+	
+	@BeforeEach
+	void setUp() {
+		movieCache = new MovieCache(2, Duration.ofMinutes(10), Duration.ofSeconds(5));
+		loads = new AtomicInteger();
+	}
+	
+	private Optional<Movie> load(Long id) {
+		loads.incrementAndGet();
+		return id.equals(movie.getId()) ? Optional.of(movie) : Optional.empty();
+	}
+	
+	@Test
+	void shouldLoadMovieOnceAndServeHitsFromCache() {
+		assertSame(movie, movieCache.get(1L, this::load).get());
+		assertSame(movie, movieCache.get(1L, this::load).get());
+		
+		assertEquals(1, loads.get());
+		assertEquals(1, movieCache.stats().hitCount());
+		assertEquals(1, movieCache.stats().missCount());
+	}
+	
+	@Test
+	void shouldKeepNewerVersionOfCachedMovie() {
+		Movie newer = new Movie(1L, "Pulp Fiction", LocalDate.of(1994, 10, 14), new BigDecimal("9.0"), 212891598L);
+		newer.setVersion(2L);
+		movie.setVersion(1L);
+		
+		movieCache.put(newer);
+		movieCache.put(movie);
+		
+		assertSame(newer, movieCache.getIfPresent(1L).get());
+	}
+	
+	@Test
+	void shouldCacheMissingMovies() {
+		assertTrue(movieCache.get(10L, this::load).isEmpty());
+		assertTrue(movieCache.get(10L, this::load).isEmpty());
+		
+		assertEquals(1, loads.get());
+	}
+	
+	@Test
+	void shouldReplaceMissingEntryWhenMovieIsPut() {
+		Movie createdMovie = new Movie(10L, "Goodfellas", LocalDate.of(1990, 11, 23), new BigDecimal("8.7"), Long.parseLong("47103483"));
+		movieCache.get(10L, this::load);
+		movieCache.put(createdMovie);
+		
+		assertSame(createdMovie, movieCache.get(10L, this::load).get());
+		assertEquals(1, loads.get());
+	}
+	
+	@Test
+	void shouldReloadMovieAfterInvalidation() {
+		movieCache.get(1L, this::load);
+		movieCache.invalidate(1L);
+		movieCache.get(1L, this::load);
+		
+		movieCache.invalidateAll();
+		movieCache.get(1L, this::load);
+		
+		assertEquals(3, loads.get());
+	}
+	
+	@Test
+	void shouldEvictEntriesAboveMaximumSize() {
+		for (long id = 1; id <= 10; id++) {
+			movieCache.get(id, this::load);
+		}
+		movieCache.cleanUp();
+		
+		assertTrue(movieCache.size() <= 2);
+		assertTrue(movieCache.stats().evictionCount() >= 8);
+	}
+}
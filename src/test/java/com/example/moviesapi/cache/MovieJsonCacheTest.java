@@ -0,0 +1,106 @@
+package com.example.moviesapi.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.moviesapi.cache.MovieJsonCache.SerializedMovie;
+import com.example.moviesapi.model.Movie;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovieJsonCacheTest {
+	
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private MovieJsonCache movieJsonCache;
+	private AtomicInteger loads;
+	
+	private final Movie movie = new Movie(1L, "Pulp Fiction", LocalDate.of(1994, 10, 14), new BigDecimal("8.9"), Long.parseLong("212891598"));
+	
+	@BeforeEach
+	void setUp() {
+		movieJsonCache = new MovieJsonCache(objectMapper, 100, 100);
+		loads = new AtomicInteger();
+		movie.setVersion(0L);
+	}
+	
+	private Movie load(Long id) {
+		loads.incrementAndGet();
+		return movie;
+	}
+	
+	private List<Movie> load(LocalDate launchDate) {
+		loads.incrementAndGet();
+		return movie.getLaunchDate().equals(launchDate) ? List.of(movie) : List.of();
+	}
+	
+	@Test
+	void shouldSerializeMovieOnceWithApplicationMapper() throws Exception {
+		SerializedMovie first = movieJsonCache.getById(1L, this::load);
+		SerializedMovie second = movieJsonCache.getById(1L, this::load);
+		
+		assertSame(first, second);
+		assertEquals(1, loads.get());
+		assertEquals(0L, first.version());
+		assertEquals(objectMapper.writeValueAsString(movie), new String(first.json(), StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	void shouldReserializeMovieAfterUpdate() {
+		movieJsonCache.getById(1L, this::load);
+		movie.setTitle("Pulp Fiction (Remastered)");
+		movie.setVersion(1L);
+		movieJsonCache.invalidate(movie);
+		
+		SerializedMovie updated = movieJsonCache.getById(1L, this::load);
+		
+		assertEquals(2, loads.get());
+		assertEquals(1L, updated.version());
+		assertTrue(new String(updated.json(), StandardCharsets.UTF_8).contains("Remastered"));
+	}
+	
+	@Test
+	void shouldDropLaunchDatesListingChangedMovies() {
+		LocalDate launchDate = movie.getLaunchDate();
+		movieJsonCache.getByLaunchDate(launchDate, this::load);
+		movieJsonCache.getByLaunchDate(launchDate, this::load);
+		assertEquals(1, loads.get());
+		
+		//the movie moved to another launch date, the old listing must not be served again
+		movie.setLaunchDate(LocalDate.of(1995, 1, 1));
+		movieJsonCache.invalidate(movie);
+		assertEquals("[]", new String(movieJsonCache.getByLaunchDate(launchDate, this::load), StandardCharsets.UTF_8));
+		
+		movieJsonCache.invalidate(1L);
+		movieJsonCache.getByLaunchDate(launchDate, this::load);
+		assertEquals(2, loads.get());
+	}
+	
+	@Test
+	void shouldDropLaunchDateOfCreatedMovies() {
+		LocalDate launchDate = LocalDate.of(1990, 11, 23);
+		movieJsonCache.getByLaunchDate(launchDate, this::load);
+		movieJsonCache.invalidateCreated(List.of(new Movie(2L, "Goodfellas", launchDate, new BigDecimal("8.7"), 47103483L)));
+		movieJsonCache.getByLaunchDate(launchDate, this::load);
+		
+		assertEquals(2, loads.get());
+	}
+	
+	@Test
+	void shouldNotCacheBodiesReadWhileAWriteHappened() {
+		movieJsonCache.getById(1L, id -> {
+			movieJsonCache.invalidate(movie);
+			return load(id);
+		});
+		movieJsonCache.getById(1L, this::load);
+		
+		assertEquals(2, loads.get());
+	}
+}
@@ -0,0 +1,158 @@
+package com.example.moviesapi.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+	
+	private SingleFlight singleFlight;
+	private AtomicInteger calls;
+	
+	@BeforeEach
+	void setUp() {
+		singleFlight = new SingleFlight();
+		calls = new AtomicInteger();
+	}
+	
+	@Test
+	void shouldShareOneCallBetweenConcurrentIdenticalReads() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> singleFlight.execute(1L, () -> {
+			calls.incrementAndGet();
+			await(release);
+			return "Pulp Fiction";
+		}));
+		while (calls.get() == 0) {
+			Thread.sleep(5);
+		}
+		
+		List<CompletableFuture<String>> followers = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			followers.add(CompletableFuture.supplyAsync(() -> singleFlight.execute(1L, () -> {
+				calls.incrementAndGet();
+				return "another call";
+			})));
+		}
+		while (singleFlight.coalesced() < 4) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+		
+		assertEquals("Pulp Fiction", first.get(5, TimeUnit.SECONDS));
+		for (CompletableFuture<String> follower : followers) {
+			assertEquals("Pulp Fiction", follower.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, calls.get());
+		assertEquals(4, singleFlight.coalesced());
+	}
+	
+	@Test
+	void shouldShareListsAsUnmodifiableCopies() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> loaded = new ArrayList<>(List.of("Pulp Fiction"));
+		CompletableFuture<List<String>> first = CompletableFuture.supplyAsync(() -> singleFlight.execute(1L, () -> {
+			calls.incrementAndGet();
+			await(release);
+			return loaded;
+		}));
+		while (calls.get() == 0) {
+			Thread.sleep(5);
+		}
+		
+		CompletableFuture<List<String>> follower = CompletableFuture.supplyAsync(() -> singleFlight.execute(1L, List::of));
+		while (singleFlight.coalesced() == 0) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+		
+		assertSame(first.get(5, TimeUnit.SECONDS), follower.get(5, TimeUnit.SECONDS));
+		assertEquals(List.of("Pulp Fiction"), follower.get());
+		assertThrows(UnsupportedOperationException.class, () -> first.get().add("Goodfellas"));
+	}
+	
+	@Test
+	void shouldNotKeepResultsOfCompletedCalls() {
+		assertEquals(1, (int) singleFlight.execute(1L, calls::incrementAndGet));
+		assertEquals(2, (int) singleFlight.execute(1L, calls::incrementAndGet));
+		assertEquals(0, singleFlight.coalesced());
+	}
+	
+	@Test
+	void shouldNotMatchKeysOfDifferentTypes() {
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> byId = CompletableFuture.supplyAsync(() -> singleFlight.execute(1L, () -> {
+			await(release);
+			return "by id";
+		}));
+		
+		try {
+			assertEquals("by date", singleFlight.execute(LocalDate.of(1994, 10, 14), () -> "by date"));
+		} finally {
+			release.countDown();
+		}
+		assertEquals("by id", byId.join());
+	}
+	
+	@Test
+	void shouldShareExceptionOfFailedCall() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> singleFlight.execute(1L, () -> {
+			calls.incrementAndGet();
+			await(release);
+			throw new IllegalStateException("database unavailable");
+		}));
+		while (calls.get() == 0) {
+			Thread.sleep(5);
+		}
+		
+		CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> singleFlight.execute(1L, () -> "another call"));
+		while (singleFlight.coalesced() < 1) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+		
+		assertInstanceOf(IllegalStateException.class, assertThrows(Exception.class, first::join).getCause());
+		assertInstanceOf(IllegalStateException.class, assertThrows(Exception.class, follower::join).getCause());
+		//the failure isn't kept
+		assertEquals("retried", singleFlight.execute(1L, () -> "retried"));
+	}
+	
+	@Test
+	void shouldStartNewCallAfterWrite() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> beforeWrite = CompletableFuture.supplyAsync(() -> singleFlight.execute(1L, () -> {
+			calls.incrementAndGet();
+			await(release);
+			return "before write";
+		}));
+		while (calls.get() == 0) {
+			Thread.sleep(5);
+		}
+		
+		singleFlight.forgetAll();
+		try {
+			assertEquals("after write", singleFlight.execute(1L, () -> "after write"));
+		} finally {
+			release.countDown();
+		}
+		assertEquals("before write", beforeWrite.get(5, TimeUnit.SECONDS));
+	}
+	
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package com.example.moviesapi.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.model.YearStats;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YearStatsSummaryTest {
+	
+	private YearStatsSummary summary;
+	private AtomicInteger loads;
+	private AtomicInteger yearLoads;
+	
+	private final Movie pulpFiction = new Movie(1L, "Pulp Fiction", LocalDate.of(1994, 10, 14), new BigDecimal("8.9"), Long.parseLong("212891598"));
+	private final Movie forrestGump = new Movie(2L, "Forrest Gump", LocalDate.of(1994, 7, 6), new BigDecimal("8.8"), Long.parseLong("679835137"));
+	private final Movie goodfellas = new Movie(3L, "Goodfellas", LocalDate.of(1990, 11, 23), new BigDecimal("8.7"), Long.parseLong("47103483"));
+	
+	@BeforeEach
+	void setUp() {
+		summary = new YearStatsSummary(true);
+		loads = new AtomicInteger();
+		yearLoads = new AtomicInteger();
+	}
+	
+	private List<YearStats> load() {
+		loads.incrementAndGet();
+		return List.of(YearStats.of(pulpFiction));
+	}
+	
+	private Optional<YearStats> loadYear(int year) {
+		yearLoads.incrementAndGet();
+		return year == 1994 ? Optional.of(YearStats.of(forrestGump)) : Optional.empty();
+	}
+	
+	@Test
+	void shouldLoadOnceAndAddCreatedMovies() {
+		summary.get(this::load, this::loadYear);
+		summary.create(() -> List.of(forrestGump, goodfellas), created -> created);
+		List<YearStats> years = summary.get(this::load, this::loadYear);
+		
+		assertEquals(1, loads.get());
+		assertEquals(2, years.size());
+		assertEquals(1990, years.get(0).year());
+		assertEquals(1994, years.get(1).year());
+		assertEquals(2, years.get(1).count());
+		assertEquals(new BigDecimal("17.7"), years.get(1).rating().sum());
+		assertEquals(new BigDecimal("8.85"), years.get(1).rating().average());
+		assertEquals(new BigDecimal("8.8"), years.get(1).rating().min());
+		assertEquals(new BigDecimal("679835137"), years.get(1).revenue().max());
+	}
+	
+	@Test
+	void shouldApplyUpdatesWithoutLoading() {
+		//neither the rating nor the revenue of Pulp Fiction is the minimum or the maximum of 1994
+		Movie shawshank = new Movie(4L, "The Shawshank Redemption", LocalDate.of(1994, 9, 23), new BigDecimal("9.3"), Long.parseLong("28341469"));
+		Movie pulpFictionRerated = new Movie(1L, "Pulp Fiction", LocalDate.of(1994, 10, 14), new BigDecimal("9.0"), Long.parseLong("212891598"));
+		summary.get(this::load, this::loadYear);
+		summary.create(() -> List.of(forrestGump, shawshank), created -> created);
+		summary.change(() -> {
+			summary.updated(pulpFiction, pulpFictionRerated);
+			return null;
+		});
+		List<YearStats> years = summary.get(this::load, this::loadYear);
+		
+		assertEquals(1, loads.get());
+		assertEquals(0, yearLoads.get());
+		assertEquals(3, years.get(0).count());
+		assertEquals(new BigDecimal("27.1"), years.get(0).rating().sum());
+		assertEquals(new BigDecimal("9.03"), years.get(0).rating().average());
+		assertEquals(new BigDecimal("8.8"), years.get(0).rating().min());
+		assertEquals(new BigDecimal("9.3"), years.get(0).rating().max());
+	}
+	
+	@Test
+	void shouldLoadOnlyYearWhoseMinimumOrMaximumWasRemoved() {
+		summary.get(this::load, this::loadYear);
+		summary.create(() -> List.of(forrestGump, goodfellas), created -> created);
+		summary.change(() -> {
+			summary.deleted(pulpFiction);
+			return null;
+		});
+		List<YearStats> years = summary.get(this::load, this::loadYear);
+		summary.get(this::load, this::loadYear);
+		
+		assertEquals(1, loads.get());
+		assertEquals(1, yearLoads.get());
+		assertEquals(List.of(YearStats.of(goodfellas), YearStats.of(forrestGump)), years);
+	}
+	
+	@Test
+	void shouldLoadAgainAfterFailedChange() {
+		summary.get(this::load, this::loadYear);
+		assertThrows(IllegalStateException.class, () -> summary.change(() -> {
+			throw new IllegalStateException("Connection is not available");
+		}));
+		summary.get(this::load, this::loadYear);
+		
+		assertEquals(2, loads.get());
+	}
+	
+	@Test
+	void shouldNotKeepLoadOverlappingWrite() {
+		summary.get(() -> {
+			summary.create(() -> goodfellas, List::of);
+			return load();
+		}, this::loadYear);
+		summary.get(this::load, this::loadYear);
+		
+		assertEquals(2, loads.get());
+	}
+	
+	@Test
+	void shouldAlwaysLoadWhenDisabled() {
+		summary = new YearStatsSummary(false);
+		summary.get(this::load, this::loadYear);
+		summary.get(this::load, this::loadYear);
+		
+		assertEquals(2, loads.get());
+	}
+}
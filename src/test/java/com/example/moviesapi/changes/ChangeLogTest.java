@@ -0,0 +1,113 @@
+package com.example.moviesapi.changes;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.moviesapi.exceptions.ChangesExpiredException;
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.model.MovieChange;
+import com.example.moviesapi.model.MovieChange.Type;
+import com.example.moviesapi.model.MovieChanges;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeLogTest {
+	
+	private ChangeLog changeLog;
+	
+	private final Movie pulpFiction = new Movie(1L, "Pulp Fiction", LocalDate.of(1994, 10, 14), new BigDecimal("8.9"), Long.parseLong("212891598"));
+	private final Movie goodfellas = new Movie(2L, "Goodfellas", LocalDate.of(1990, 11, 23), new BigDecimal("8.7"), Long.parseLong("47103483"));
+	
+	@BeforeEach
+	void setUp() {
+		changeLog = new ChangeLog(4);
+	}
+	
+	@Test
+	void shouldNumberChangesInOrder() {
+		changeLog.created(List.of(pulpFiction, goodfellas));
+		changeLog.updated(pulpFiction);
+		goodfellas.setVersion(3L);
+		changeLog.deleted(goodfellas);
+		changeLog.deletedAll();
+		
+		//the first change is no longer kept
+		MovieChanges changes = changeLog.since(changeLog.epoch(), 1, 10);
+		assertEquals(List.of(2L, 3L, 4L, 5L), changes.changes().stream().map(MovieChange::sequence).toList());
+		assertEquals(List.of(Type.CREATED, Type.UPDATED, Type.DELETED, Type.DELETED_ALL), changes.changes().stream().map(MovieChange::type).toList());
+		assertEquals(goodfellas, changes.changes().get(0).movie());
+		assertEquals(2L, changes.changes().get(2).id());
+		assertEquals(3L, changes.changes().get(2).version());
+		assertNull(changes.changes().get(2).movie());
+		assertEquals(changeLog.epoch(), changes.epoch());
+		assertEquals(5, changes.last());
+	}
+	
+	@Test
+	void shouldReturnOnlyChangesAfterSequence() {
+		changeLog.created(List.of(pulpFiction));
+		changeLog.updated(pulpFiction);
+		changeLog.updated(pulpFiction);
+		
+		MovieChanges changes = changeLog.since(changeLog.epoch(), 1, 1);
+		assertEquals(1, changes.changes().size());
+		assertEquals(2, changes.changes().get(0).sequence());
+		assertEquals(2, changes.last());
+		
+		MovieChanges none = changeLog.since(changeLog.epoch(), 3, 10);
+		assertTrue(none.changes().isEmpty());
+		assertEquals(3, none.last());
+	}
+	
+	@Test
+	void shouldRejectSequencesThatLeftTheLog() {
+		for (int i = 0; i < 6; i++) {
+			changeLog.updated(pulpFiction);
+		}
+		
+		assertThrows(ChangesExpiredException.class, () -> changeLog.since(changeLog.epoch(), 0, 10));
+		assertThrows(ChangesExpiredException.class, () -> changeLog.since(changeLog.epoch(), 1, 10));
+		assertEquals(4, changeLog.since(changeLog.epoch(), 2, 10).changes().size());
+		//a sequence from before a restart
+		assertThrows(ChangesExpiredException.class, () -> changeLog.since(changeLog.epoch(), 7, 10));
+	}
+	
+	@Test
+	void shouldRejectSequencesOfAnotherEpoch() {
+		changeLog.updated(pulpFiction);
+		
+		assertThrows(ChangesExpiredException.class, () -> changeLog.since("another", 1, 10));
+		assertThrows(ChangesExpiredException.class, () -> changeLog.since(null, 1, 10));
+		//reading from the start doesn't depend on the epoch
+		assertEquals(1, changeLog.since(null, 0, 10).changes().size());
+	}
+	
+	@Test
+	void shouldWakeUpWaitingReaderOnAppend() throws Exception {
+		CompletableFuture<MovieChanges> waiting = CompletableFuture.supplyAsync(() -> {
+			try {
+				return changeLog.await(changeLog.epoch(), 0, 10, 5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		
+		changeLog.updated(pulpFiction);
+		assertEquals(1, waiting.get(5, TimeUnit.SECONDS).changes().size());
+	}
+	
+	@Test
+	void shouldReturnNoChangesWhenWaitTimesOut() throws Exception {
+		changeLog.updated(pulpFiction);
+		
+		MovieChanges changes = changeLog.await(changeLog.epoch(), 1, 10, 10, TimeUnit.MILLISECONDS);
+		assertTrue(changes.changes().isEmpty());
+		assertEquals(1, changes.last());
+	}
+}
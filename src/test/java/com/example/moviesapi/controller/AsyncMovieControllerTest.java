@@ -0,0 +1,254 @@
+package com.example.moviesapi.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.moviesapi.async.MovieExecutor;
+import com.example.moviesapi.cache.IdempotencyStore;
+import com.example.moviesapi.exceptions.MovieNotFoundException;
+import com.example.moviesapi.ingest.GroupCommitWriter;
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.service.impl.MovieServiceImpl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+@WebMvcTest(AsyncMovieController.class)
+@Import({MovieExecutor.class, MovieWrites.class, IdempotencyStore.class})
+@TestPropertySource(properties = {"movies.async.pool-size=1", "movies.async.queue-capacity=1", "movies.async.timeout=500ms"})
+class AsyncMovieControllerTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MovieExecutor movieExecutor;
+
+    @MockBean
+    MovieServiceImpl mockMovieService;
+
+    @MockBean
+    GroupCommitWriter mockGroupCommitWriter;
+
+    private final List<Movie> movies = new ArrayList<>();
+
+
+    @BeforeEach
+    void setUp() {
+        movies.add(new Movie(1L, "Pulp Fiction", LocalDate.of(1994, 10, 14), new BigDecimal("8.9"), Long.parseLong("212891598")));
+        movies.add(new Movie(2L, "Goodfellas", LocalDate.of(1990, 11, 23), new BigDecimal("8.7"), Long.parseLong("47103483")));
+    }
+
+
+    @Test
+    void shouldCreateMovie() throws Exception {
+        Movie movie = new Movie("Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal(8.0), Long.valueOf(679835137));
+        when(mockMovieService.create(any(Movie.class))).thenReturn(new Movie(5L, "Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal(8.0), Long.valueOf(679835137)));
+
+        MvcResult result = mvc.perform(post("/api/async/movies")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(movie)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(5L))
+                .andExpect(jsonPath("$.title").value(movie.getTitle()));
+    }
+
+    @Test
+    void shouldFindMovieById() throws Exception {
+        when(mockMovieService.findById(1L)).thenReturn(movies.get(0));
+
+        MvcResult result = mvc.perform(get("/api/async/movies/1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.title").value("Pulp Fiction"));
+    }
+
+    @Test
+    void shouldReturnNotFound_whenTheServiceFails() throws Exception {
+        when(mockMovieService.findById(9L)).thenThrow(new MovieNotFoundException(9L));
+
+        MvcResult result = mvc.perform(get("/api/async/movies/9"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamAllMoviesAsJsonArray() throws Exception {
+        doAnswer(invocation -> {
+        	movies.forEach(invocation.getArgument(0, Consumer.class));
+        	return null;
+        }).when(mockMovieService).streamAll(any());
+
+        MvcResult result = mvc.perform(get("/api/async/movies"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(5000);
+
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, result.getResponse().getContentType());
+        assertEquals(objectMapper.writeValueAsString(movies), result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void shouldDeleteMovie() throws Exception {
+        MvcResult result = mvc.perform(delete("/api/async/movies/1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isNoContent());
+        verify(mockMovieService).delete(1L);
+    }
+
+    @Test
+    void shouldCreateMovieOnce_whenRetriedWithIdempotencyKey() throws Exception {
+        Movie movie = new Movie("Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal("8.0"), Long.valueOf(679835137));
+        when(mockMovieService.create(any(Movie.class))).thenReturn(new Movie(5L, "Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal("8.0"), Long.valueOf(679835137)));
+
+        for (int i = 0; i < 2; i++) {
+        	MvcResult result = mvc.perform(post("/api/async/movies")
+                    .header("Idempotency-Key", "async-create")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(movie)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+        	mvc.perform(asyncDispatch(result))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.id").value(5L));
+        }
+        verify(mockMovieService, times(1)).create(any(Movie.class));
+    }
+
+    @Test
+    void shouldUpdateOnlyMatchingVersion_whenIfMatchIsSent() throws Exception {
+        Movie updated = new Movie(1L, "Pulp Fiction", LocalDate.of(1994, 10, 14), new BigDecimal("9.0"), Long.parseLong("212891598"));
+        updated.setVersion(4L);
+        when(mockMovieService.update(any(Movie.class), eq(1L), eq(3L))).thenReturn(updated);
+
+        MvcResult result = mvc.perform(put("/api/async/movies/1")
+                .header(HttpHeaders.IF_MATCH, "\"1-3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updated)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-4\""));
+        verify(mockMovieService, never()).update(any(Movie.class), eq(1L));
+    }
+
+    @Test
+    void shouldWaitForStartedWrite_andRejectOnlyQueuedWrite() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+        	release.await(5, TimeUnit.SECONDS);
+        	return null;
+        }).when(mockMovieService).delete(1L);
+
+        try {
+        	//The first delete runs past the 500 ms timeout, the second is still queued by then
+        	MvcResult running = mvc.perform(delete("/api/async/movies/1")).andExpect(request().asyncStarted()).andReturn();
+        	while (movieExecutor.queued() > 0) {
+        		Thread.sleep(10);
+        	}
+        	MvcResult queued = mvc.perform(delete("/api/async/movies/2")).andExpect(request().asyncStarted()).andReturn();
+
+        	mvc.perform(asyncDispatch(queued))
+                    .andExpect(status().isServiceUnavailable());
+        	Thread.sleep(200);
+        	//the started delete is still running past the timeout
+        	assertThrows(IllegalStateException.class, () -> running.getAsyncResult(0));
+        	release.countDown();
+
+        	mvc.perform(asyncDispatch(running))
+                    .andExpect(status().isNoContent());
+        } finally {
+        	release.countDown();
+        }
+
+        //The queued delete was never run
+        Thread.sleep(200);
+        verify(mockMovieService, never()).delete(2L);
+    }
+
+    @Test
+    void shouldShedLoad_whenTheQueueIsFullOrACallTimesOut() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockMovieService.findById(1L)).thenAnswer(invocation -> {
+        	release.await(5, TimeUnit.SECONDS);
+        	return movies.get(0);
+        });
+
+        try {
+        	//The first call occupies the only thread, the second waits in the queue and the third is rejected
+        	MvcResult running = mvc.perform(get("/api/async/movies/1")).andExpect(request().asyncStarted()).andReturn();
+        	while (movieExecutor.queued() > 0) {
+        		Thread.sleep(10);
+        	}
+        	MvcResult queued = mvc.perform(get("/api/async/movies/1")).andExpect(request().asyncStarted()).andReturn();
+
+        	mvc.perform(get("/api/async/movies/1"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                    .andExpect(jsonPath("$.title").value("Service Unavailable"));
+
+        	//Neither call completes within the 500 ms timeout
+        	mvc.perform(asyncDispatch(running))
+                    .andExpect(status().isServiceUnavailable());
+        	mvc.perform(asyncDispatch(queued))
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+        	release.countDown();
+        }
+
+        //The queued call was skipped once it timed out
+        Thread.sleep(200);
+        verify(mockMovieService, times(1)).findById(1L);
+    }
+}
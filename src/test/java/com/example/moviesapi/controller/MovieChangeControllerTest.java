@@ -0,0 +1,140 @@
+package com.example.moviesapi.controller;
+
+import com.example.moviesapi.changes.ChangeLog;
+import com.example.moviesapi.model.Movie;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+
+@WebMvcTest(MovieChangeController.class)
+@Import(ChangeLog.class)
+@TestPropertySource(properties = {"movies.changes.capacity=3", "movies.changes.heartbeat=100ms"})
+class MovieChangeControllerTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ChangeLog changeLog;
+
+    private final Movie pulpFiction = new Movie(1L, "Pulp Fiction", LocalDate.of(1994, 10, 14), new BigDecimal("8.9"), Long.parseLong("212891598"));
+    private final Movie goodfellas = new Movie(2L, "Goodfellas", LocalDate.of(1990, 11, 23), new BigDecimal("8.7"), Long.parseLong("47103483"));
+
+
+    @Test
+    void shouldReturnChangesSinceSequence() throws Exception {
+        long start = changeLog.last();
+        changeLog.created(List.of(pulpFiction, goodfellas));
+        pulpFiction.setVersion(2L);
+        changeLog.deleted(pulpFiction);
+
+        mvc.perform(get("/api/movies/changes").param("epoch", changeLog.epoch()).param("since", Long.toString(start + 1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.epoch").value(changeLog.epoch()))
+                .andExpect(jsonPath("$.changes.length()").value(2))
+                .andExpect(jsonPath("$.changes[0].sequence").value(start + 2))
+                .andExpect(jsonPath("$.changes[0].type").value("CREATED"))
+                .andExpect(jsonPath("$.changes[0].movie.title").value("Goodfellas"))
+                .andExpect(jsonPath("$.changes[1].type").value("DELETED"))
+                .andExpect(jsonPath("$.changes[1].id").value(1))
+                .andExpect(jsonPath("$.changes[1].version").value(2))
+                .andExpect(jsonPath("$.last").value(start + 3));
+    }
+
+    @Test
+    void shouldReturnGone_whenSequenceLeftTheChangeLog() throws Exception {
+        long start = changeLog.last();
+        changeLog.created(List.of(pulpFiction, goodfellas));
+        changeLog.deleted(pulpFiction);
+        changeLog.deleted(goodfellas);
+
+        mvc.perform(get("/api/movies/changes").param("epoch", changeLog.epoch()).param("since", Long.toString(start)))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.title").value("Changes Expired"));
+
+        mvc.perform(get("/api/movies/changes/stream").header("Last-Event-ID", changeLog.epoch() + "-" + start))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void shouldReturnGone_whenSequenceBelongsToAnotherEpoch() throws Exception {
+        changeLog.created(List.of(pulpFiction));
+
+        mvc.perform(get("/api/movies/changes").param("epoch", "restarted").param("since", "1"))
+                .andExpect(status().isGone());
+
+        mvc.perform(get("/api/movies/changes/stream").header("Last-Event-ID", "restarted-1"))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    void shouldReturnBadRequest_whenSequenceHasNoEpoch() throws Exception {
+        changeLog.created(List.of(pulpFiction));
+
+        mvc.perform(get("/api/movies/changes").param("since", "1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.fieldErrors.epoch").exists());
+
+        mvc.perform(get("/api/movies/changes/stream").header("Last-Event-ID", "1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldStreamChangesAfterLastEventId() throws Exception {
+        long start = changeLog.last();
+        changeLog.created(List.of(pulpFiction));
+
+        MvcResult result = mvc.perform(get("/api/movies/changes/stream")
+                .header("Last-Event-ID", changeLog.epoch() + "-" + start)
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        changeLog.updated(goodfellas);
+
+        String epoch = changeLog.epoch();
+        String body = awaitBody(result, "id:" + epoch + "-" + (start + 2));
+        assertTrue(body.startsWith("id:" + epoch + "-" + (start + 1) + "\nevent:CREATED\ndata:{\"sequence\":" + (start + 1) + ",\"type\":\"CREATED\",\"id\":1,\"version\":"), body);
+        assertTrue(body.contains("id:" + epoch + "-" + (start + 2) + "\nevent:UPDATED\n"), body);
+        assertTrue(body.contains("\"title\":\"Goodfellas\""), body);
+    }
+
+    @Test
+    void shouldSendHeartbeatWhileThereAreNoChanges() throws Exception {
+        MvcResult result = mvc.perform(get("/api/movies/changes/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertTrue(awaitBody(result, ":heartbeat").startsWith(":heartbeat"));
+        //no changes were sent, the stream starts at the end of the change log
+        changeLog.deletedAll();
+        assertTrue(awaitBody(result, "event:DELETED_ALL").contains("id:" + changeLog.epoch() + "-" + changeLog.last() + "\nevent:DELETED_ALL"));
+    }
+
+    private static String awaitBody(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String body = result.getResponse().getContentAsString();
+        while (!body.contains(expected) && System.currentTimeMillis() < deadline) {
+        	Thread.sleep(20);
+        	body = result.getResponse().getContentAsString();
+        }
+        return body;
+    }
+}
@@ -1,8 +1,26 @@
 package com.example.moviesapi.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.example.moviesapi.config.BinaryFormatsConfig;
+import com.example.moviesapi.cache.IdempotencyStore;
+import com.example.moviesapi.cache.MovieJsonCache;
+import com.example.moviesapi.exceptions.IngestBufferFullException;
 import com.example.moviesapi.exceptions.MovieNotFoundException;
+import com.example.moviesapi.exceptions.MoviePreconditionFailedException;
+import com.example.moviesapi.exceptions.PartialWriteException;
+import com.example.moviesapi.ingest.GroupCommitWriter;
+import com.example.moviesapi.model.BulkOutcome;
 import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.model.MovieBatch;
+import com.example.moviesapi.model.MoviePage;
+import com.example.moviesapi.model.MovieQuery;
+import com.example.moviesapi.model.MovieQuery.SortField;
+import com.example.moviesapi.model.YearStats;
+import com.example.moviesapi.search.TitleIndex.TitleMatch;
+import com.example.moviesapi.service.impl.MovieImportServiceImpl;
 import com.example.moviesapi.service.impl.MovieServiceImpl;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -11,26 +29,38 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.function.Consumer;
 
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
 @WebMvcTest(MovieController.class)
+@Import({MovieWrites.class, MovieImportServiceImpl.class, MovieJsonCache.class, IdempotencyStore.class, BinaryFormatsConfig.class})
 class MovieControllerTest {
 
     @Autowired
@@ -39,14 +69,21 @@ class MovieControllerTest {
     @Autowired
     ObjectMapper objectMapper;
 
+    @Autowired
+    MovieJsonCache movieJsonCache;
+
     @MockBean
     MovieServiceImpl mockMovieService;
 
+    @MockBean
+    GroupCommitWriter mockGroupCommitWriter;
+
     private final List<Movie> movies = new ArrayList<>();
 
 
     @BeforeEach
     void setUp() {
+        movieJsonCache.invalidateAll();
         movies.add(new Movie(1L, "Pulp Fiction", LocalDate.of(1994, 10, 14), new BigDecimal("8.9"), Long.parseLong("212891598")));
         movies.add(new Movie(2L, "Goodfellas", LocalDate.of(1990, 11, 23), new BigDecimal("8.7"), Long.parseLong("47103483")));
         movies.add(new Movie(3L, "The Godfather", LocalDate.of(1972, 10, 24), new BigDecimal("9.2"), Long.parseLong("270007394")));
@@ -193,6 +230,77 @@ class MovieControllerTest {
 	}
 		
 
+    @Test
+    void shouldReplayCreatedMovie_whenIdempotencyKeyIsRetried() throws Exception {
+        Movie movie = new Movie("Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal("8.0"), Long.valueOf(679835137));
+        when(mockMovieService.create(any(Movie.class))).thenReturn(new Movie(5L, "Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal("8.0"), Long.valueOf(679835137)));
+        
+        for (int i = 0; i < 2; i++) {
+        	mvc.perform(post("/api/movies")
+        			.header("Idempotency-Key", "create-forrest-gump")
+        			.contentType(MediaType.APPLICATION_JSON)
+        			.content(objectMapper.writeValueAsString(movie)))
+        			.andExpect(status().isCreated())
+        			.andExpect(jsonPath("$.id").value(5L));
+        }
+        
+        movie.setTitle("Forrest Gump (Director's Cut)");
+        mvc.perform(post("/api/movies")
+        		.header("Idempotency-Key", "create-forrest-gump")
+        		.contentType(MediaType.APPLICATION_JSON)
+        		.content(objectMapper.writeValueAsString(movie)))
+        		.andExpect(status().isUnprocessableEntity())
+        		.andExpect(jsonPath("$.title").value("Idempotency Key Reused"));
+        
+        verify(mockMovieService, times(1)).create(any(Movie.class));
+    }
+
+    @Test
+    void shouldReplayCreatedList_whenIdempotencyKeyIsRetried() throws Exception {
+        List<Movie> newMovies = List.of(new Movie("Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal("8.0"), Long.valueOf(679835137)));
+        when(mockMovieService.createAll(anyList())).thenReturn(List.of(new Movie(5L, "Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal("8.0"), Long.valueOf(679835137))));
+        
+        for (int i = 0; i < 2; i++) {
+        	mvc.perform(post("/api/movies/list")
+        			.header("Idempotency-Key", "create-list")
+        			.contentType(MediaType.APPLICATION_JSON)
+        			.content(objectMapper.writeValueAsString(newMovies)))
+        			.andExpect(status().isCreated())
+        			.andExpect(jsonPath("$[0].id").value(5L));
+        }
+        
+        verify(mockMovieService, times(1)).createAll(anyList());
+    }
+
+    @Test
+    void shouldCreateMovieThroughGroupCommit_whenEnabled() throws Exception {
+        Movie movie = new Movie("Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal("8.0"), Long.valueOf(679835137));
+        when(mockGroupCommitWriter.isEnabled()).thenReturn(true);
+        when(mockGroupCommitWriter.create(any(Movie.class))).thenReturn(new Movie(5L, "Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal("8.0"), Long.valueOf(679835137)));
+        
+        mvc.perform(post("/api/movies")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(movie)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(5L));
+        
+        verify(mockMovieService, never()).create(any(Movie.class));
+    }
+
+    @Test
+    void shouldRejectMovie_whenGroupCommitBufferIsFull() throws Exception {
+        Movie movie = new Movie("Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal("8.0"), Long.valueOf(679835137));
+        when(mockGroupCommitWriter.isEnabled()).thenReturn(true);
+        when(mockGroupCommitWriter.create(any(Movie.class))).thenThrow(new IngestBufferFullException("The ingestion buffer of 10 movies is full, retry later"));
+        
+        mvc.perform(post("/api/movies")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(movie)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("$.title").value("Too Many Requests"));
+    }
+
     @Test
     void shouldFindMovie_withValidId() throws Exception {
         Movie movie = movies.get(0);
@@ -225,7 +333,63 @@ class MovieControllerTest {
     }
 
     
-    private Long getRandomIdThatDoesNotExistInListOfMovies() {
+    @Test
+    void shouldFindMoviesByIds_inRequestedOrder() throws Exception {
+        when(mockMovieService.findAllById(List.of(3L, 9L, 1L))).thenReturn(new MovieBatch(List.of(movies.get(2), movies.get(0)), List.of(9L)));
+
+        mvc.perform(get("/api/movies/batch").param("ids", "3,9,1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.movies[0].id").value(3L))
+                .andExpect(jsonPath("$.movies[1].id").value(1L))
+                .andExpect(jsonPath("$.missing[0]").value(9L));
+    }
+
+    @Test
+    void shouldNotFindMoviesByIds_withTooManyIds() throws Exception {
+        String ids = String.join(",", Collections.nCopies(1001, "1"));
+
+        mvc.perform(get("/api/movies/batch").param("ids", ids))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.fieldErrors.ids").exists());
+        verify(mockMovieService, never()).findAllById(any());
+    }
+
+    @Test
+    void shouldReturnNotModified_whenMovieETagMatches() throws Exception {
+        Movie movie = movies.get(0);
+        movie.setVersion(3L);
+        when(mockMovieService.findById(movie.getId())).thenReturn(movie);
+
+        mvc.perform(get("/api/movies/{id}", movie.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-3\""));
+        
+        mvc.perform(get("/api/movies/{id}", movie.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        
+        mvc.perform(get("/api/movies/{id}", movie.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"1-2\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value(movie.getTitle()));
+        
+        verify(mockMovieService, times(1)).findById(movie.getId());
+    }
+
+    @Test
+    void shouldReturnNotModified_whenCollectionETagMatches() throws Exception {
+        when(mockMovieService.getCollectionVersion()).thenReturn("epoch-5");
+
+        mvc.perform(get("/api/movies").header(HttpHeaders.IF_NONE_MATCH, "W/\"epoch-5\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"epoch-5\""));
+        
+        mvc.perform(get("/api/movies").header(HttpHeaders.IF_NONE_MATCH, "\"epoch-5\""))
+                .andExpect(status().isNotModified());
+        
+        verify(mockMovieService, never()).findAll();
+    }
+
+        private Long getRandomIdThatDoesNotExistInListOfMovies() {
     	List<Long> validIds = movies.stream()
                                     .map(m -> m.getId())
                                     .toList();
@@ -257,6 +421,201 @@ class MovieControllerTest {
     }
 
 
+    @Test
+    void shouldFindPageOfMovies() throws Exception {
+        when(mockMovieService.findPage(1L, 2)).thenReturn(new MoviePage(List.of(movies.get(1), movies.get(2)), 3L));
+
+        mvc.perform(get("/api/movies/page").param("after", "1").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.movies[0].title").value(movies.get(1).getTitle()))
+                .andExpect(jsonPath("$.movies[1].title").value(movies.get(2).getTitle()))
+                .andExpect(jsonPath("$.next").value(3L));
+        
+        verify(mockMovieService).findPage(1L, 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamAllMoviesAsNdjson() throws Exception {
+        doAnswer(invocation -> {
+        	movies.forEach(invocation.getArgument(0, Consumer.class));
+        	return null;
+        }).when(mockMovieService).streamAll(any());
+
+        MvcResult result = mvc.perform(get("/api/movies/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        
+        String expected = "";
+        for (Movie movie : movies) {
+        	expected += objectMapper.writeValueAsString(movie) + "\n";
+        }
+        
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(expected));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldImportValidMoviesAndReportInvalidRows() throws Exception {
+        when(mockMovieService.createAll(anyList())).thenAnswer(invocation -> new ArrayList<>(invocation.getArgument(0, List.class)));
+        
+        String json = "[" + objectMapper.writeValueAsString(movies.get(0)) + ","
+        		+ "{\"title\":\"\",\"launchDate\":\"1990-11-23\",\"rating\":8.7,\"revenue\":47103483},"
+        		+ "{\"title\":\"The Godfather\",\"launchDate\":\"24-10-1972\",\"rating\":9.2,\"revenue\":270007394},"
+        		+ objectMapper.writeValueAsString(movies.get(3)) + "]";
+
+        mvc.perform(post("/api/movies/import").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].fieldErrors.title").value("Title cannot be empty or null"))
+                .andExpect(jsonPath("$.errors[1].index").value(2))
+                .andExpect(jsonPath("$.errors[1].fieldErrors.launchDate").value("Launch date must be in the format yyyy-MM-dd"))
+                .andExpect(jsonPath("$.aborted").doesNotExist());
+        
+        verify(mockMovieService).createAll(anyList());
+    }
+
+    @Test
+    void shouldReportRowsTheDatabaseRejects_andKeepCommittedOnes() throws Exception {
+        Movie tooLong = new Movie("T".repeat(256), LocalDate.of(1999, 3, 31), new BigDecimal("8.7"), 467222728L);
+        //the first movie of the batch was committed before the batch failed
+        when(mockMovieService.createAll(anyList())).thenThrow(new PartialWriteException(List.of(movies.get(0)), 3,
+        		new DataIntegrityViolationException("Value too long for column TITLE")));
+        when(mockMovieService.create(any(Movie.class))).thenAnswer(invocation -> {
+        	Movie movie = invocation.getArgument(0);
+        	if (movie.getTitle().length() > 255) {
+        		throw new DataIntegrityViolationException("Value too long for column TITLE");
+        	}
+        	return movie;
+        });
+        
+        String json = "[" + objectMapper.writeValueAsString(movies.get(0)) + ","
+        		+ objectMapper.writeValueAsString(movies.get(1)) + ","
+        		+ objectMapper.writeValueAsString(tooLong) + "]";
+
+        mvc.perform(post("/api/movies/import").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(2))
+                .andExpect(jsonPath("$.errors[0].fieldErrors.movie").exists());
+        
+        verify(mockMovieService, times(2)).create(any(Movie.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldImportNdjsonUntilMalformedJson() throws Exception {
+        when(mockMovieService.createAll(anyList())).thenAnswer(invocation -> new ArrayList<>(invocation.getArgument(0, List.class)));
+        
+        String ndjson = objectMapper.writeValueAsString(movies.get(0)) + "\n"
+        		+ objectMapper.writeValueAsString(movies.get(1)) + "\n"
+        		+ "{\"title\": ]\n"
+        		+ objectMapper.writeValueAsString(movies.get(2)) + "\n";
+
+        mvc.perform(post("/api/movies/import").contentType(MediaType.APPLICATION_NDJSON).content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(0))
+                .andExpect(jsonPath("$.aborted").exists());
+    }
+
+    @Test
+    void shouldFindMoviesByQuery() throws Exception {
+        MovieQuery query = new MovieQuery(LocalDate.of(1970, 1, 1), LocalDate.of(1979, 12, 31), new BigDecimal("9.0"), null,
+        		null, SortField.RATING, true, 10);
+        when(mockMovieService.findByQuery(query)).thenReturn(List.of(movies.get(2), movies.get(3)));
+
+        mvc.perform(get("/api/movies/query")
+        		.param("launchedFrom", "1970-01-01").param("launchedTo", "1979-12-31")
+        		.param("minRating", "9.0").param("sort", "rating,desc").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value(movies.get(2).getTitle()))
+                .andExpect(jsonPath("$[1].title").value(movies.get(3).getTitle()));
+        
+        verify(mockMovieService).findByQuery(query);
+    }
+
+    @Test
+    void shouldNotFindMoviesByQuery_withInvalidSortAndRanges() throws Exception {
+        mvc.perform(get("/api/movies/query")
+        		.param("minRating", "9.0").param("maxRating", "8.0").param("sort", "title"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.title").value("Invalid Query"))
+                .andExpect(jsonPath("$.fieldErrors.minRating").exists())
+                .andExpect(jsonPath("$.fieldErrors.sort").exists());
+        
+        verify(mockMovieService, never()).findByQuery(any());
+    }
+
+    @Test
+    void shouldFindTopMoviesByRating() throws Exception {
+        when(mockMovieService.findTop(SortField.RATING, 2)).thenReturn(List.of(movies.get(2), movies.get(0)));
+
+        mvc.perform(get("/api/movies/top").param("by", "rating").param("n", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value(movies.get(2).getTitle()))
+                .andExpect(jsonPath("$[1].title").value(movies.get(0).getTitle()));
+        
+        verify(mockMovieService).findTop(SortField.RATING, 2);
+    }
+
+    @Test
+    void shouldNotFindTopMovies_withInvalidRanking() throws Exception {
+        mvc.perform(get("/api/movies/top").param("by", "title"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.fieldErrors.by").exists());
+        
+        verify(mockMovieService, never()).findTop(any(), anyInt());
+    }
+
+    @Test
+    void shouldFindYearStats() throws Exception {
+        when(mockMovieService.findYearStats()).thenReturn(List.of(YearStats.of(movies.get(2)).plus(movies.get(3))));
+
+        mvc.perform(get("/api/movies/stats/years"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].year").value(1972))
+                .andExpect(jsonPath("$[0].count").value(2))
+                .andExpect(jsonPath("$[0].rating.average").value(9.2))
+                .andExpect(jsonPath("$[0].revenue.sum").value(540014788));
+    }
+
+    @Test
+    void shouldSearchMoviesByTitle() throws Exception {
+        when(mockMovieService.searchByTitle("the godf", 10)).thenReturn(List.of(movies.get(2)));
+
+        mvc.perform(get("/api/movies/search").param("q", "the godf"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value(movies.get(2).getTitle()));
+        
+        verify(mockMovieService).searchByTitle("the godf", 10);
+    }
+
+    @Test
+    void shouldAutocompleteTitles() throws Exception {
+        when(mockMovieService.autocompleteTitle("god", 5)).thenReturn(List.of(new TitleMatch(3L, "The Godfather", false)));
+
+        mvc.perform(get("/api/movies/autocomplete").param("prefix", "god").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(3L))
+                .andExpect(jsonPath("$[0].title").value("The Godfather"));
+    }
+
+    @Test
+    void shouldNotSearchMovies_withoutQuery() throws Exception {
+        mvc.perform(get("/api/movies/search"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.title").value("Missing query parameter"));
+        
+        verify(mockMovieService, never()).searchByTitle(any(), anyInt());
+    }
+
     @Test
     void shouldFindMoviesByLaunchDate() throws Exception {
         LocalDate launchDate = LocalDate.of(1972, 10, 24);
@@ -272,6 +631,36 @@ class MovieControllerTest {
         verify(mockMovieService).findByLaunchDate(launchDate);
     }
 
+    @Test
+    void shouldFindMoviesAsCborOrSmile_whenAccepted() throws Exception {
+        LocalDate launchDate = LocalDate.of(1972, 10, 24);
+        when(mockMovieService.findAll()).thenReturn(movies);
+        when(mockMovieService.findByLaunchDate(launchDate)).thenReturn(List.of(movies.get(2), movies.get(3)));
+        ObjectMapper cborMapper = objectMapper.copyWith(new CBORFactory());
+        ObjectMapper smileMapper = objectMapper.copyWith(new SmileFactory());
+        TypeReference<List<Movie>> movieList = new TypeReference<>() {};
+
+        byte[] cbor = mvc.perform(get("/api/movies").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(result -> assertEquals("application/cbor", result.getResponse().getContentType()))
+                .andReturn().getResponse().getContentAsByteArray();
+        List<Movie> decoded = cborMapper.readValue(cbor, movieList);
+        assertEquals(movies.get(3).getTitle(), decoded.get(3).getTitle());
+        assertEquals(movies.get(3).getLaunchDate(), decoded.get(3).getLaunchDate());
+        assertEquals(movies.get(3).getRating(), decoded.get(3).getRating());
+
+        byte[] smile = mvc.perform(get("/api/movies/launchDate/" + launchDate).accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(result -> assertEquals("application/x-jackson-smile", result.getResponse().getContentType()))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(movies.get(3).getTitle(), smileMapper.readValue(smile, movieList).get(1).getTitle());
+
+        mvc.perform(get("/api/movies/launchDate/" + launchDate).accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(result -> assertEquals("application/json", result.getResponse().getContentType()))
+                .andExpect(jsonPath("$[1].title").value(movies.get(3).getTitle()));
+    }
+
     @Test
     void shouldUpdateMovie_WithValidId() throws Exception {
     	Long oldMovieId = movies.get(3).getId();
@@ -307,6 +696,46 @@ class MovieControllerTest {
 		verify(mockMovieService).update(any(Movie.class), eq(invalidId));
 	}
     
+    @Test
+    void shouldUpdateMovie_withMatchingIfMatchETag() throws Exception {
+        Movie newMovie = new Movie("Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal("8.0"), Long.valueOf(679835137));
+        Movie updatedMovie = new Movie(1L, newMovie.getTitle(), newMovie.getLaunchDate(), newMovie.getRating(), newMovie.getRevenue());
+        updatedMovie.setVersion(4L);
+        when(mockMovieService.update(any(Movie.class), eq(1L), eq(3L))).thenReturn(updatedMovie);
+
+        mvc.perform(put("/api/movies/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "\"1-3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newMovie)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-4\""))
+                .andExpect(jsonPath("$.title").value(newMovie.getTitle()));
+        
+        verify(mockMovieService).update(any(Movie.class), eq(1L), eq(3L));
+    }
+
+    @Test
+    void shouldNotUpdateMovie_withStaleOrForeignIfMatchETag() throws Exception {
+        Movie newMovie = new Movie("Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal("8.0"), Long.valueOf(679835137));
+        when(mockMovieService.update(any(Movie.class), eq(1L), eq(2L))).thenThrow(new MoviePreconditionFailedException(1L));
+
+        mvc.perform(put("/api/movies/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "\"1-2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newMovie)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.title").value("Precondition Failed"));
+        
+        //ETag of another movie
+        mvc.perform(put("/api/movies/{id}", 1L)
+                .header(HttpHeaders.IF_MATCH, "\"2-2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(newMovie)))
+                .andExpect(status().isPreconditionFailed());
+        
+        verify(mockMovieService, never()).update(any(Movie.class), anyLong());
+    }
+
     @Test
     void shouldNotUpdateMovie_withNullandEmptyFields() throws Exception {
     	//Tests with null fields
@@ -385,6 +814,90 @@ class MovieControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void shouldUpdateListOfMovies_withOutcomePerId() throws Exception {
+        Movie unknown = new Movie(9L, "Unknown", LocalDate.of(2000, 1, 1), BigDecimal.ONE, 0L);
+        when(mockMovieService.updateAll(anyList())).thenReturn(List.of(
+        		new BulkOutcome(1L, BulkOutcome.Status.UPDATED, movies.get(0)),
+        		new BulkOutcome(9L, BulkOutcome.Status.NOT_FOUND, null)));
+
+        mvc.perform(put("/api/movies/list")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(movies.get(0), unknown))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1L))
+                .andExpect(jsonPath("$[0].status").value("UPDATED"))
+                .andExpect(jsonPath("$[0].movie.title").value("Pulp Fiction"))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"));
+    }
+
+    @Test
+    void shouldNotUpdateListOfMovies_withMissingIdsOrFields() throws Exception {
+        Movie movie = new Movie("Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal(8.0), Long.valueOf(679835137));
+
+        mvc.perform(put("/api/movies/list")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(movie))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.fieldErrors.id").value("Id cannot be null"));
+
+        movie.setId(1L);
+        movie.setRevenue(null);
+        mvc.perform(put("/api/movies/list")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(movie))))
+                .andExpect(status().isBadRequest());
+
+        verify(mockMovieService, never()).updateAll(anyList());
+    }
+
+    @Test
+    void shouldPatchListOfMovies_validatingOnlyPresentFields() throws Exception {
+        when(mockMovieService.updateAll(anyList())).thenReturn(List.of(new BulkOutcome(1L, BulkOutcome.Status.UPDATED, movies.get(0))));
+
+        mvc.perform(patch("/api/movies/list")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\": 1, \"rating\": 9.0}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("UPDATED"));
+
+        mvc.perform(patch("/api/movies/list")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\": 1, \"rating\": 10.5, \"title\": \"\"}, {\"rating\": 9.0}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.title").value("Validation Errors"))
+                .andExpect(jsonPath("$.fieldErrors.rating").value("Rating must be between 0.0 and 10.0"))
+                .andExpect(jsonPath("$.fieldErrors.title").value("Title cannot be empty or null"))
+                .andExpect(jsonPath("$.fieldErrors.id").value("Id cannot be null"));
+
+        verify(mockMovieService, times(1)).updateAll(anyList());
+    }
+
+    @Test
+    void shouldDeleteListOfMovies_withOutcomePerId() throws Exception {
+        when(mockMovieService.deleteAllById(List.of(2L, 9L))).thenReturn(List.of(
+        		new BulkOutcome(2L, BulkOutcome.Status.DELETED, null),
+        		new BulkOutcome(9L, BulkOutcome.Status.NOT_FOUND, null)));
+
+        mvc.perform(delete("/api/movies/list").param("ids", "2,9"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("DELETED"))
+                .andExpect(jsonPath("$[1].id").value(9L))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"));
+    }
+
+    @Test
+    void shouldReportMultiStatus_whenChunkFailed() throws Exception {
+        when(mockMovieService.deleteAllById(List.of(2L, 9L))).thenReturn(List.of(
+        		new BulkOutcome(2L, BulkOutcome.Status.DELETED, null),
+        		new BulkOutcome(9L, BulkOutcome.Status.FAILED, null)));
+
+        mvc.perform(delete("/api/movies/list").param("ids", "2,9"))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$[0].status").value("DELETED"))
+                .andExpect(jsonPath("$[1].status").value("FAILED"));
+    }
+
     @Test
     void shouldDeleteAllMovies() throws Exception {
         mvc.perform(delete("/api/movies"))
@@ -0,0 +1,200 @@
+package com.example.moviesapi.ingest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.example.moviesapi.exceptions.IngestBufferFullException;
+import com.example.moviesapi.exceptions.PartialWriteException;
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.service.MovieService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class GroupCommitWriterTest {
+	
+	private final MovieService movieService = mock(MovieService.class);
+	private final MeterRegistry registry = new SimpleMeterRegistry();
+	private final AtomicLong ids = new AtomicLong();
+	private final ExecutorService clients = Executors.newFixedThreadPool(8);
+	private GroupCommitWriter groupCommitWriter;
+	
+	private GroupCommitWriter start(int capacity, Duration maxLatency, int maxBatchSize) {
+		groupCommitWriter = new GroupCommitWriter(movieService, registry, "group-commit", capacity, maxLatency, maxBatchSize);
+		groupCommitWriter.start();
+		return groupCommitWriter;
+	}
+	
+	@AfterEach
+	void tearDown() {
+		if (groupCommitWriter.isRunning()) {
+			groupCommitWriter.stop();
+		}
+		clients.shutdownNow();
+	}
+	
+	private static Movie movie(String title) {
+		return new Movie(title, LocalDate.of(1994, 10, 14), new BigDecimal("8.9"), 212891598L);
+	}
+	
+	private Movie created(Movie movie) {
+		return new Movie(ids.incrementAndGet(), movie.getTitle(), movie.getLaunchDate(), movie.getRating(), movie.getRevenue());
+	}
+	
+	private List<Movie> createdAll(List<Movie> movies) {
+		return movies.stream().map(this::created).toList();
+	}
+	
+	@Test
+	void shouldCommitConcurrentMoviesTogether() throws Exception {
+		when(movieService.createAll(anyList())).thenAnswer(invocation -> createdAll(invocation.getArgument(0)));
+		start(100, Duration.ofSeconds(5), 8);
+		
+		List<Future<Movie>> results = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			Movie movie = movie("Movie " + i);
+			results.add(clients.submit(() -> groupCommitWriter.create(movie)));
+		}
+		
+		for (int i = 0; i < 8; i++) {
+			Movie created = results.get(i).get();
+			assertEquals("Movie " + i, created.getTitle());
+			assertNotNull(created.getId());
+		}
+		//a full batch is written without waiting for the five seconds of latency
+		verify(movieService, times(1)).createAll(anyList());
+		assertEquals(0, groupCommitWriter.depth());
+		assertEquals(8, registry.get("movies.ingest.batch.size").summary().totalAmount());
+	}
+	
+	@Test
+	void shouldFlushPartialBatchAfterMaxLatency() {
+		when(movieService.createAll(anyList())).thenAnswer(invocation -> createdAll(invocation.getArgument(0)));
+		start(100, Duration.ofMillis(20), 500);
+		
+		assertEquals(1L, groupCommitWriter.create(movie("Pulp Fiction")).getId());
+		assertEquals(2L, groupCommitWriter.create(movie("Goodfellas")).getId());
+		verify(movieService, times(2)).createAll(anyList());
+	}
+	
+	@Test
+	void shouldRejectMoviesWhenBufferIsFull() throws Exception {
+		CountDownLatch committing = new CountDownLatch(1);
+		CompletableFuture<Void> database = new CompletableFuture<>();
+		when(movieService.createAll(anyList())).thenAnswer(invocation -> {
+			committing.countDown();
+			database.join();
+			return createdAll(invocation.getArgument(0));
+		});
+		start(2, Duration.ZERO, 500);
+		
+		//the first movie holds the flusher in the database, the next two fill the buffer
+		Future<Movie> first = clients.submit(() -> groupCommitWriter.create(movie("First")));
+		committing.await();
+		List<Future<Movie>> queued = List.of(clients.submit(() -> groupCommitWriter.create(movie("Second"))),
+				clients.submit(() -> groupCommitWriter.create(movie("Third"))));
+		while (groupCommitWriter.depth() < 2) {
+			Thread.onSpinWait();
+		}
+		
+		assertThrows(IngestBufferFullException.class, () -> groupCommitWriter.create(movie("Fourth")));
+		assertEquals(1.0, registry.get("movies.ingest.rejected").counter().count());
+		
+		database.complete(null);
+		assertEquals("First", first.get().getTitle());
+		for (Future<Movie> movie : queued) {
+			assertNotNull(movie.get().getId());
+		}
+	}
+	
+	@Test
+	void shouldRetryFailedBatchOneMovieAtATime() throws Exception {
+		when(movieService.createAll(anyList())).thenThrow(new DataIntegrityViolationException("Value too long for column TITLE"));
+		when(movieService.create(any(Movie.class))).thenAnswer(invocation -> {
+			Movie movie = invocation.getArgument(0);
+			if (movie.getTitle().equals("Bad")) {
+				throw new DataIntegrityViolationException("Value too long for column TITLE");
+			}
+			return created(movie);
+		});
+		start(100, Duration.ofSeconds(5), 2);
+		
+		Future<Movie> good = clients.submit(() -> groupCommitWriter.create(movie("Good")));
+		Future<Movie> bad = clients.submit(() -> groupCommitWriter.create(movie("Bad")));
+		
+		assertEquals("Good", good.get().getTitle());
+		Exception error = assertThrows(Exception.class, bad::get);
+		assertInstanceOf(DataIntegrityViolationException.class, error.getCause());
+	}
+	
+	@Test
+	void shouldNotRetryBatchThatMayHaveCommitted() throws Exception {
+		when(movieService.createAll(anyList())).thenThrow(new IllegalStateException("Cache is closed"));
+		start(100, Duration.ofSeconds(5), 2);
+		
+		Future<Movie> first = clients.submit(() -> groupCommitWriter.create(movie("First")));
+		Future<Movie> second = clients.submit(() -> groupCommitWriter.create(movie("Second")));
+		
+		assertInstanceOf(IllegalStateException.class, assertThrows(Exception.class, first::get).getCause());
+		assertInstanceOf(IllegalStateException.class, assertThrows(Exception.class, second::get).getCause());
+		verify(movieService, never()).create(any(Movie.class));
+	}
+	
+	@Test
+	void shouldCompleteCommittedPartOfFailedBatch() throws Exception {
+		when(movieService.createAll(anyList())).thenAnswer(invocation -> {
+			List<Movie> movies = invocation.getArgument(0);
+			throw new PartialWriteException(createdAll(movies.subList(0, 1)), movies.size(),
+					new DataIntegrityViolationException("Value too long for column TITLE"));
+		});
+		when(movieService.create(any(Movie.class))).thenAnswer(invocation -> created(invocation.getArgument(0)));
+		start(100, Duration.ofSeconds(5), 2);
+		
+		Future<Movie> first = clients.submit(() -> groupCommitWriter.create(movie("Movie")));
+		Future<Movie> second = clients.submit(() -> groupCommitWriter.create(movie("Movie")));
+		
+		assertEquals(Set.of(1L, 2L), Set.of(first.get().getId(), second.get().getId()));
+		//only the movie of the chunk that was rolled back is written again
+		verify(movieService, times(1)).create(any(Movie.class));
+	}
+	
+	@Test
+	void shouldFailWaitingMoviesWhenFlusherDies() throws Exception {
+		when(movieService.createAll(anyList())).thenThrow(new OutOfMemoryError("Java heap space"));
+		start(100, Duration.ofSeconds(5), 1);
+		
+		Exception error = assertThrows(Exception.class, () -> clients.submit(() -> groupCommitWriter.create(movie("First"))).get());
+		assertInstanceOf(IllegalStateException.class, error.getCause());
+		assertThrows(IngestBufferFullException.class, () -> groupCommitWriter.create(movie("Second")));
+	}
+	
+	@Test
+	void shouldRejectMoviesWhenDisabledOrStopped() {
+		groupCommitWriter = new GroupCommitWriter(movieService, registry, "direct", 100, Duration.ofMillis(5), 500);
+		groupCommitWriter.start();
+		
+		assertFalse(groupCommitWriter.isEnabled());
+		assertThrows(IngestBufferFullException.class, () -> groupCommitWriter.create(movie("Pulp Fiction")));
+		verifyNoInteractions(movieService);
+	}
+}
@@ -0,0 +1,126 @@
+package com.example.moviesapi.jdbc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCachingDataSourceTest {
+	
+	private StatementCacheStats stats;
+	private Connection connection;
+	
+	@BeforeEach
+	void setUp() throws SQLException {
+		stats = new StatementCacheStats();
+		StatementCachingDataSource dataSource = new StatementCachingDataSource(
+				new DriverManagerDataSource("jdbc:h2:mem:statementCache"), 2, stats);
+		connection = dataSource.getConnection();
+	}
+	
+	@AfterEach
+	void tearDown() throws SQLException {
+		connection.close();
+	}
+	
+	private PreparedStatement prepareAndClose(String sql) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement(sql);
+		PreparedStatement target = statement.unwrap(PreparedStatement.class);
+		statement.close();
+		return target;
+	}
+	
+	@Test
+	void shouldReuseClosedStatementForSameSql() throws SQLException {
+		PreparedStatement first = prepareAndClose("SELECT 1");
+		PreparedStatement second = prepareAndClose("SELECT 1");
+		
+		assertSame(first, second);
+		assertFalse(first.isClosed());
+		assertEquals(1, stats.hitCount());
+		assertEquals(1, stats.missCount());
+		assertEquals(0.5, stats.hitRatio());
+	}
+	
+	@Test
+	void shouldClearParametersBeforeReuse() throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("SELECT ?")) {
+			statement.setInt(1, 7);
+			try (ResultSet rs = statement.executeQuery()) {
+				rs.next();
+				assertEquals(7, rs.getInt(1));
+			}
+		}
+		
+		try (PreparedStatement statement = connection.prepareStatement("SELECT ?")) {
+			assertThrows(SQLException.class, statement::executeQuery);
+		}
+	}
+	
+	@Test
+	void shouldResetStatementSettingsBeforeReuse() throws SQLException {
+		int fetchSize;
+		int maxRows;
+		try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM SYSTEM_RANGE(1, 10)")) {
+			fetchSize = statement.getFetchSize();
+			maxRows = statement.getMaxRows();
+			statement.setFetchSize(500);
+			statement.setMaxRows(3);
+			statement.setQueryTimeout(5);
+		}
+		
+		try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM SYSTEM_RANGE(1, 10)")) {
+			assertEquals(1, stats.hitCount());
+			assertEquals(fetchSize, statement.getFetchSize());
+			assertEquals(maxRows, statement.getMaxRows());
+			assertEquals(0, statement.getQueryTimeout());
+		}
+	}
+	
+	@Test
+	void shouldCacheStatementVariantsSeparately() throws SQLException {
+		PreparedStatement plain = prepareAndClose("SELECT 1");
+		
+		PreparedStatement withKeys = connection.prepareStatement("SELECT 1", Statement.RETURN_GENERATED_KEYS);
+		
+		assertNotSame(plain, withKeys.unwrap(PreparedStatement.class));
+		assertEquals(2, stats.missCount());
+		withKeys.close();
+	}
+	
+	@Test
+	void shouldNotShareStatementInUse() throws SQLException {
+		PreparedStatement first = connection.prepareStatement("SELECT 1");
+		PreparedStatement second = connection.prepareStatement("SELECT 1");
+		
+		assertNotSame(first.unwrap(PreparedStatement.class), second.unwrap(PreparedStatement.class));
+		first.close();
+		second.close();
+		assertTrue(second.isClosed());
+	}
+	
+	@Test
+	void shouldCloseLeastRecentlyUsedStatementAboveCacheSize() throws SQLException {
+		PreparedStatement first = prepareAndClose("SELECT 1");
+		prepareAndClose("SELECT 2");
+		prepareAndClose("SELECT 3");
+		
+		assertTrue(first.isClosed());
+	}
+	
+	@Test
+	void shouldCloseCachedStatementsWithConnection() throws SQLException {
+		PreparedStatement statement = prepareAndClose("SELECT 1");
+		connection.close();
+		
+		assertTrue(statement.isClosed());
+	}
+}
@@ -6,13 +6,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.model.MovieQuery;
+import com.example.moviesapi.model.MovieQuery.SortField;
+import com.example.moviesapi.model.MovieUpdate;
+import com.example.moviesapi.model.YearStats;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,10 +30,13 @@ import static org.junit.jupiter.api.Assertions.*;
 class MovieRepositoryTest {
 	
 	private MovieRepository movieRepository;
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 	
 	@Autowired
-	public MovieRepositoryTest(JdbcClient jdbcClient, JdbcTemplate jdbcTemplate) {
-		this.movieRepository = new MovieRepository(jdbcClient, jdbcTemplate);
+	public MovieRepositoryTest(JdbcClient jdbcClient, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+		//small batch size so that createAll is exercised across several chunks
+		this.movieRepository = new MovieRepository(jdbcClient, jdbcTemplate, transactionTemplate,
+				new QueryMetrics(meterRegistry, Duration.ofMillis(200)), 2, 2);
 	}
 	
 	@BeforeAll
@@ -45,6 +58,13 @@ class MovieRepositoryTest {
 	}
 	
 	
+	@Test
+	void shouldRejectBatchSizeBelowOne(@Autowired JdbcClient jdbcClient, @Autowired JdbcTemplate jdbcTemplate,
+			@Autowired TransactionTemplate transactionTemplate) {
+		assertThrows(IllegalArgumentException.class, () -> new MovieRepository(jdbcClient, jdbcTemplate, transactionTemplate,
+				new QueryMetrics(meterRegistry, Duration.ofMillis(200)), 0, 2));
+	}
+	
 	@Test
 	void shouldCreateAndReturnMovie() {
 		Movie movie = new Movie("Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal(8.0), Long.valueOf(679835137));
@@ -65,6 +85,24 @@ class MovieRepositoryTest {
 		
 	}
 	
+	@Test
+	void shouldRecordQueryTimeAndRows() {
+		movieRepository.findAll();
+		movieRepository.findByLaunchDate(LocalDate.of(1972, 10, 24));
+		
+		assertEquals(1, meterRegistry.get("movies.repository.query").tags("query", "findAll", "outcome", "success").timer().count());
+		assertEquals(3, meterRegistry.get("movies.repository.rows").tag("query", "findAll").summary().totalAmount());
+		assertEquals(1, meterRegistry.get("movies.repository.rows").tag("query", "findByLaunchDate").summary().totalAmount());
+	}
+
+	@Test
+	void shouldFindMoviesContainingEveryTitleWord_shortestFirst() {
+		assertEquals(List.of("Goodfellas", "Pulp Fiction"),
+				movieRepository.findByTitleWords(List.of("f"), 2).stream().map(Movie::getTitle).toList());
+		assertEquals(List.of("The Godfather"),
+				movieRepository.findByTitleWords(List.of("the", "godf"), 10).stream().map(Movie::getTitle).toList());
+	}
+
 	@Test
 	void shouldCreateAndReturnAllMovies() {
 		List<Movie> returnedMovies = movieRepository.createAll(List.of(new Movie("Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal(8.0), Long.valueOf(679835137))
@@ -85,6 +123,58 @@ class MovieRepositoryTest {
 		assertEquals("The Dark Knight", movies.get(5).getTitle());
 	}
 	
+	@Test
+	void shouldCreateAllMoviesInBatches_ReturnMoviesWithIdsInOrder() {
+		List<Movie> newMovies = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			newMovies.add(new Movie("Movie " + i, LocalDate.of(2000 + i, 1, 1), new BigDecimal("7.5"), Long.valueOf(1000 + i)));
+		}
+		
+		List<Movie> returnedMovies = movieRepository.createAll(newMovies);
+		List<Movie> movies = movieRepository.findAll();
+		
+		assertEquals(5, returnedMovies.size());
+		assertEquals(8, movies.size());
+		
+		for (int i = 0; i < 5; i++) {
+			assertNotNull(returnedMovies.get(i).getId());
+			assertEquals("Movie " + i, returnedMovies.get(i).getTitle());
+			assertMovieEquals(returnedMovies.get(i), movies.get(3 + i));
+		}
+	}
+	
+	@Test
+	void shouldHandCommittedChunksToAction_BeforeFailingChunk() {
+		//batch size 2, so the invalid third movie fails the second chunk
+		List<Movie> newMovies = List.of(
+				new Movie("Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal("8.8"), 679835137L),
+				new Movie("Heat", LocalDate.of(1995, 12, 15), new BigDecimal("8.3"), 187436818L),
+				new Movie("T".repeat(300), LocalDate.of(1999, 3, 31), new BigDecimal("8.7"), 467222728L));
+		List<List<Movie>> chunks = new ArrayList<>();
+		
+		assertThrows(RuntimeException.class, () -> movieRepository.createAll(newMovies, chunks::add));
+		
+		assertEquals(1, chunks.size());
+		assertEquals(List.of("Forrest Gump", "Heat"), chunks.get(0).stream().map(Movie::getTitle).toList());
+		assertEquals(5, movieRepository.findAll().size());
+	}
+	
+	@Test
+	void shouldHoldCommitOrderLockPerChunk() {
+		List<Movie> newMovies = List.of(
+				new Movie("Forrest Gump", LocalDate.of(1994, 10, 28), new BigDecimal("8.8"), 679835137L),
+				new Movie("Heat", LocalDate.of(1995, 12, 15), new BigDecimal("8.3"), 187436818L),
+				new Movie("Fargo", LocalDate.of(1996, 3, 8), new BigDecimal("8.1"), 60611975L));
+		ReentrantLock commitOrder = new ReentrantLock();
+		List<Integer> holds = new ArrayList<>();
+		
+		movieRepository.createAll(newMovies, commitOrder, chunk -> holds.add(commitOrder.getHoldCount()));
+		
+		//held while each of the two chunks is committed and handed over, and released afterwards
+		assertEquals(List.of(1, 1), holds);
+		assertFalse(commitOrder.isLocked());
+	}
+	
 	@Test
 	void shouldFindMovieWithValidId_ReturnMovie() {
 		Optional<Movie> movie = movieRepository.findById(1L);
@@ -107,6 +197,22 @@ class MovieRepositoryTest {
 		assertFalse(movie.isPresent());
 	}
 	
+	@Test
+	void shouldFindMoviesByIdsInChunks() {
+		//140 distinct ids are read with a chunk of 128 ids and a padded chunk of 32 ids
+		List<Long> ids = new ArrayList<>();
+		for (long id = 140; id >= 1; id--) {
+			ids.add(id);
+		}
+		ids.add(2L);
+		
+		List<Movie> movies = movieRepository.findAllById(ids);
+		
+		assertEquals(List.of(1L, 2L, 3L), movies.stream().map(Movie::getId).sorted().toList());
+		assertEquals(2, meterRegistry.get("movies.repository.query").tags("query", "findAllById", "outcome", "success").timer().count());
+		assertEquals(3, meterRegistry.get("movies.repository.rows").tag("query", "findAllById").summary().totalAmount());
+	}
+	
 	@Test
 	void shouldFindAllMovies() {
 		List<Movie> movies = movieRepository.findAll();
@@ -124,6 +230,33 @@ class MovieRepositoryTest {
 		assertEquals("The Godfather",movies.get(2).getTitle());
 	}
 	
+	@Test
+	void shouldFindPagesOfMoviesAfterId() {
+		List<Movie> firstPage = movieRepository.findPage(null, 2);
+		List<Movie> secondPage = movieRepository.findPage(firstPage.get(1).getId(), 2);
+		
+		assertEquals(2, firstPage.size());
+		assertEquals("Pulp Fiction", firstPage.get(0).getTitle());
+		assertEquals("Goodfellas", firstPage.get(1).getTitle());
+		
+		assertEquals(1, secondPage.size());
+		assertEquals("The Godfather", secondPage.get(0).getTitle());
+		assertEquals(0, movieRepository.findPage(secondPage.get(0).getId(), 2).size());
+	}
+	
+	@Test
+	void shouldStreamAllMoviesInIdOrder() {
+		List<Movie> streamedMovies = new ArrayList<>();
+		movieRepository.streamAll(streamedMovies::add);
+		List<Movie> movies = movieRepository.findAll();
+		
+		assertEquals(3, streamedMovies.size());
+		
+		for (int i = 0; i < movies.size(); i++) {
+			assertMovieEquals(movies.get(i), streamedMovies.get(i));
+		}
+	}
+	
 	@Test 
 	void shouldFindMoviesByLaunchDate() {
 		Movie movie = new Movie("O Padrinho", LocalDate.of(1972, 10, 24), new BigDecimal("9.2"), Long.parseLong("270007394"));
@@ -141,39 +274,131 @@ class MovieRepositoryTest {
 		assertEquals("O Padrinho",sameLaunchDateMovies.get(1).getTitle());
 	}
 	
+	@Test
+	void shouldFindMoviesByQuery_FilteredSortedAndLimited() {
+		List<Movie> nineties = movieRepository.findByQuery(new MovieQuery(LocalDate.of(1990, 1, 1), LocalDate.of(1999, 12, 31),
+				null, null, null, SortField.RATING, true, 10));
+		List<Movie> topRated = movieRepository.findByQuery(new MovieQuery(null, null, new BigDecimal("8.8"), new BigDecimal("10.0"),
+				null, SortField.LAUNCH_DATE, false, 10));
+		List<Movie> topGrossing = movieRepository.findByQuery(new MovieQuery(null, null, null, null,
+				100_000_000L, SortField.REVENUE, true, 1));
+		
+		assertEquals(List.of("Pulp Fiction", "Goodfellas"), nineties.stream().map(Movie::getTitle).toList());
+		assertEquals(List.of("The Godfather", "Pulp Fiction"), topRated.stream().map(Movie::getTitle).toList());
+		assertEquals(List.of("The Godfather"), topGrossing.stream().map(Movie::getTitle).toList());
+	}
+	
+	@Test
+	void shouldAggregateMoviesPerLaunchYear() {
+		movieRepository.create(new Movie("Forrest Gump", LocalDate.of(1994, 7, 6), new BigDecimal("8.8"), Long.valueOf(679835137)));
+		List<YearStats> years = movieRepository.findYearStats();
+		
+		assertEquals(List.of(1972, 1990, 1994), years.stream().map(YearStats::year).toList());
+		assertEquals(2, years.get(2).count());
+		assertEquals(new BigDecimal("17.7"), years.get(2).rating().sum());
+		assertEquals(new BigDecimal("8.85"), years.get(2).rating().average());
+		assertEquals(new BigDecimal("8.8"), years.get(2).rating().min());
+		assertEquals(new BigDecimal("8.9"), years.get(2).rating().max());
+		assertEquals(0, new BigDecimal("892726735").compareTo(years.get(2).revenue().sum()));
+		assertEquals(0, new BigDecimal("212891598").compareTo(years.get(2).revenue().min()));
+		assertEquals(years.get(2), movieRepository.findYearStats(1994).get());
+		assertTrue(movieRepository.findYearStats(1995).isEmpty());
+	}
+	
 	@Test
 	void shouldUpdateMovieWithValidId_ReturnMovie() {
 		Movie movie = movieRepository.findById(2L).get();
 		movie.setTitle("Tudo Bons Rapazes");
-		Optional<Movie> optReturnedMovie = movieRepository.update(movie, 2L);
+		movie.setRating(new BigDecimal("8.75"));
+		Optional<MovieUpdate> optReturnedMovie = movieRepository.update(movie, 2L, true);
 		Movie createdMovie = movieRepository.findById(2L).get();
 		
 		assertTrue(optReturnedMovie.isPresent());
-		Movie returnedMovie = optReturnedMovie.get();
+		Movie returnedMovie = optReturnedMovie.get().updated();
 		
 		assertNotNull(createdMovie);
 		assertMovieEquals(returnedMovie,createdMovie);
+		assertEquals(createdMovie.getVersion(), returnedMovie.getVersion());
 		assertEquals("Tudo Bons Rapazes", createdMovie.getTitle());
+		assertEquals("Goodfellas", optReturnedMovie.get().previous().getTitle());
+		assertEquals(new BigDecimal("8.8"), createdMovie.getRating());
+	}
+	
+	@Test
+	void shouldUpdateMovieOnlyWithExpectedVersion() {
+		Movie movie = movieRepository.findById(3L).get();
+		long version = movie.getVersion();
+		movie.setTitle("O Padrinho");
+		
+		Optional<MovieUpdate> updatedMovie = movieRepository.update(movie, 3L, version, false);
+		Optional<MovieUpdate> staleUpdate = movieRepository.update(movie, 3L, version, true);
+		
+		assertTrue(updatedMovie.isPresent());
+		assertEquals(version + 1, updatedMovie.get().updated().getVersion());
+		assertEquals("O Padrinho", updatedMovie.get().updated().getTitle());
+		assertNull(updatedMovie.get().previous());
+		assertFalse(staleUpdate.isPresent());
+		assertEquals(version + 1, movieRepository.findById(3L).get().getVersion());
 	}
 	
 	@Test
 	void shouldNotUpdateMovieWithInvalidId_ReturnEmptyOptional() {
 		Movie movie = movieRepository.findById(2L).get();
 		movie.setTitle("Tudo Bons Rapazes");
-		Optional<Movie> optReturnedMovie = movieRepository.update(movie, 10L);
+		Optional<MovieUpdate> optReturnedMovie = movieRepository.update(movie, 10L, true);
 		
 		assertFalse(optReturnedMovie.isPresent());
 	}
 	
+	@Test
+	void shouldUpdateMoviesInBatches_KeepingMissingFields() {
+		//batch size 2, so the three updates are run as two chunks
+		Movie pulpFiction = new Movie(1L, null, null, new BigDecimal("9.0"), null);
+		Movie goodfellas = new Movie(2L, "Tudo Bons Rapazes", LocalDate.of(1990, 9, 19), new BigDecimal("8.7"), 46836394L);
+		Movie unknown = new Movie(10L, "Unknown", LocalDate.of(2000, 1, 1), BigDecimal.ONE, 0L);
+		List<List<MovieUpdate>> chunks = new ArrayList<>();
+		
+		List<Integer> chunkSizes = new ArrayList<>();
+		
+		movieRepository.updateAll(List.of(pulpFiction, unknown, goodfellas), true, new ReentrantLock(), (chunk, updates) -> {
+			chunkSizes.add(chunk.size());
+			chunks.add(updates);
+		});
+		
+		assertEquals(List.of(2, 1), chunkSizes);
+		assertEquals(List.of(1L), chunks.get(0).stream().map(update -> update.updated().getId()).toList());
+		assertEquals(new BigDecimal("8.9"), chunks.get(0).get(0).previous().getRating());
+		Movie updatedPulpFiction = chunks.get(0).get(0).updated();
+		assertEquals("Pulp Fiction", updatedPulpFiction.getTitle());
+		assertEquals(LocalDate.of(1994, 10, 14), updatedPulpFiction.getLaunchDate());
+		assertEquals(0, new BigDecimal("9.0").compareTo(updatedPulpFiction.getRating()));
+		assertEquals(212891598L, updatedPulpFiction.getRevenue());
+		assertEquals(1L, updatedPulpFiction.getVersion());
+		assertMovieEquals(goodfellas, chunks.get(1).get(0).updated());
+		assertMovieEquals(goodfellas, movieRepository.findById(2L).get());
+		assertMovieEquals(movieRepository.findById(1L).get(), updatedPulpFiction);
+	}
+	
+	@Test
+	void shouldDeleteMoviesInBatches_ReturnDeletedMovies() {
+		List<List<Movie>> chunks = new ArrayList<>();
+		
+		movieRepository.deleteAllById(List.of(3L, 10L, 1L), new ReentrantLock(), (chunk, deleted) -> chunks.add(deleted));
+		
+		assertEquals(List.of(List.of(3L), List.of(1L)), chunks.stream().map(chunk -> chunk.stream().map(Movie::getId).toList()).toList());
+		assertEquals("Pulp Fiction", chunks.get(1).get(0).getTitle());
+		assertEquals(List.of(2L), movieRepository.findAll().stream().map(Movie::getId).toList());
+	}
+	
 	@Test
 	void shouldDeleteMovieWithValidId() {
-		movieRepository.delete(1L);
+		assertEquals("Pulp Fiction", movieRepository.delete(1L).get().getTitle());
 		assertEquals(2, movieRepository.findAll().size());
 	}
 	
 	@Test
 	void shouldNotDeleteMovieWithInvalidId() {
-		movieRepository.delete(10L);
+		assertTrue(movieRepository.delete(10L).isEmpty());
 		assertEquals(3, movieRepository.findAll().size());
 	}
 	
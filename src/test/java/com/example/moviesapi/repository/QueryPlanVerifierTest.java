@@ -0,0 +1,49 @@
+package com.example.moviesapi.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJdbcTest
+class QueryPlanVerifierTest {
+	
+	@Autowired
+	private JdbcClient jdbcClient;
+	
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	
+	@Test
+	void shouldNotFindTableScansInIndexedQueries() {
+		QueryPlanVerifier verifier = new QueryPlanVerifier(jdbcClient, QueryPlanVerifier.Mode.FAIL);
+		
+		assertTrue(verifier.findUnexpectedTableScans().isEmpty());
+		assertDoesNotThrow(() -> verifier.run(null));
+	}
+	
+	@Test
+	void shouldReportTableScanWhenLaunchDateIndexIsMissing() {
+		//DDL is not rolled back with the test transaction, so the index is recreated afterwards
+		jdbcTemplate.execute("DROP INDEX idx_movie_launchDate_rating");
+		
+		try {
+			QueryPlanVerifier verifier = new QueryPlanVerifier(jdbcClient, QueryPlanVerifier.Mode.FAIL);
+			List<String> tableScans = verifier.findUnexpectedTableScans();
+			
+			assertEquals(3, tableScans.size());
+			assertTrue(tableScans.get(0).startsWith("findByLaunchDate"));
+			assertTrue(tableScans.get(1).startsWith("findByQuery(launchDate range)"));
+			assertTrue(tableScans.get(2).startsWith("findYearStatsOfYear"));
+			assertThrows(IllegalStateException.class, () -> verifier.run(null));
+			
+		} finally {
+			jdbcTemplate.execute("CREATE INDEX idx_movie_launchDate_rating ON Movie (launchDate, rating)");
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package com.example.moviesapi.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.moviesapi.model.Movie;
+import com.example.moviesapi.search.TitleIndex.TitleMatch;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TitleIndexTest {
+	
+	private TitleIndex titleIndex;
+	
+	@BeforeEach
+	void setUp() {
+		titleIndex = new TitleIndex(100, 100);
+		titleIndex.addAll(List.of(movie(1L, "The Godfather"), movie(2L, "The Godfather Part II"),
+				movie(3L, "The Dark Knight"), movie(4L, "Amélie"), movie(5L, "Godzilla")));
+	}
+	
+	private static Movie movie(Long id, String title) {
+		return new Movie(id, title, LocalDate.of(2000, 1, 1), new BigDecimal("8.0"), 1L);
+	}
+	
+	private List<Long> search(String query, int limit) {
+		return titleIndex.search(query, limit).stream().map(TitleMatch::id).toList();
+	}
+	
+	@Test
+	void shouldIgnoreWritesThatArriveOutOfOrder() {
+		Movie newer = movie(3L, "The Dark Knight Rises");
+		newer.setVersion(2L);
+		Movie older = movie(3L, "The Dark Knight");
+		older.setVersion(1L);
+		
+		titleIndex.add(newer);
+		titleIndex.add(older);
+		titleIndex.remove(5L);
+		titleIndex.add(movie(5L, "Godzilla"));
+		
+		assertEquals(List.of(3L), search("rises", 10));
+		assertEquals(List.of(), search("godzilla", 10));
+		assertEquals(4, titleIndex.size());
+	}
+	
+	@Test
+	void shouldTokenizeWithoutCaseAccentsAndDuplicates() {
+		assertEquals(List.of("amelie", "poulain", "2"), TitleIndex.tokenize("  Amélie, POULAIN amelie-2!"));
+	}
+	
+	@Test
+	void shouldRankWholeWordsAndShorterTitlesFirst() {
+		assertEquals(List.of(5L, 1L, 2L), search("god", 10));
+		assertEquals(List.of(1L, 2L), search("godfather", 10));
+		assertEquals(List.of(5L), search("god", 1));
+	}
+	
+	@Test
+	void shouldMatchWholeWordsAndLastWordPrefix() {
+		assertEquals(List.of(2L), search("godfather pa", 10));
+		assertEquals(List.of(3L), search("the kni", 10));
+		assertEquals(List.of(4L), search("AME", 10));
+		assertTrue(search("dark godfather", 10).isEmpty());
+		assertTrue(search("!!", 10).isEmpty());
+	}
+	
+	@Test
+	void shouldRankWholeWordMatchesBeforePrefixMatches() {
+		titleIndex.add(movie(6L, "Gods and Generals"));
+		titleIndex.add(movie(7L, "God Bless America"));
+		
+		assertEquals(List.of(7L, 5L, 1L, 6L, 2L), search("god", 10));
+	}
+	
+	@Test
+	void shouldReindexUpdatedAndForgetDeletedMovies() {
+		titleIndex.add(movie(5L, "Mothra"));
+		titleIndex.remove(3L);
+		
+		assertEquals(List.of(1L, 2L), search("god", 10));
+		assertEquals(List.of(5L), search("moth", 10));
+		assertTrue(search("dark", 10).isEmpty());
+		assertEquals(4, titleIndex.size());
+	}
+	
+	@Test
+	void shouldCapExaminedPrefixMatches() {
+		titleIndex = new TitleIndex(2, 100);
+		titleIndex.addAll(List.of(movie(1L, "Star"), movie(2L, "Stardust"), movie(3L, "Starship Troopers"), movie(4L, "Stars")));
+		
+		assertEquals(List.of(1L, 4L, 2L), search("star", 10));
+	}
+	
+	@Test
+	void shouldDropTheIndexPastMaxTitles_untilCleared() {
+		titleIndex = new TitleIndex(100, 2);
+		titleIndex.addAll(List.of(movie(1L, "The Godfather"), movie(2L, "Godzilla")));
+		titleIndex.add(movie(2L, "Godzilla vs Kong"));
+		
+		assertTrue(titleIndex.isComplete());
+		
+		titleIndex.add(movie(3L, "The Dark Knight"));
+		titleIndex.add(movie(4L, "Amélie"));
+		
+		assertFalse(titleIndex.isComplete());
+		assertEquals(0, titleIndex.size());
+		assertTrue(search("god", 10).isEmpty());
+		
+		titleIndex.clear();
+		titleIndex.add(movie(5L, "Godzilla"));
+		
+		assertTrue(titleIndex.isComplete());
+		assertEquals(List.of(5L), search("god", 10));
+	}
+	
+	@Test
+	void shouldRankMoviesFoundElsewhereLikeTheIndex() {
+		List<Movie> movies = List.of(movie(2L, "The Godfather Part II"), movie(5L, "Godzilla"), movie(1L, "The Godfather"),
+				movie(3L, "The Dark Knight"), movie(6L, "Mothers of God"));
+		
+		assertEquals(List.of(6L, 5L, 1L, 2L), TitleIndex.rank("god", movies, 10).stream().map(TitleMatch::id).toList());
+		assertEquals(List.of(1L, 2L), TitleIndex.rank("the godf", movies, 10).stream().map(TitleMatch::id).toList());
+		assertEquals(List.of(6L), TitleIndex.rank("god", movies, 1).stream().map(TitleMatch::id).toList());
+	}
+}
@@ -0,0 +1,120 @@
+package com.example.moviesapi.snapshot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.moviesapi.model.Movie;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovieSnapshotTest {
+	
+	private MovieSnapshot movieSnapshot;
+	
+	@BeforeEach
+	void setUp() {
+		movieSnapshot = new MovieSnapshot("snapshot");
+		movieSnapshot.putAll(List.of(
+				movie(1L, "Pulp Fiction", LocalDate.of(1994, 10, 14), "8.9", 212891598L),
+				movie(2L, "Goodfellas", LocalDate.of(1990, 11, 23), "8.7", 47103483L),
+				movie(4L, "O Padrinho", LocalDate.of(1972, 10, 24), "9.2", 270007394L)));
+	}
+	
+	private static Movie movie(Long id, String title, LocalDate launchDate, String rating, Long revenue) {
+		Movie movie = new Movie(id, title, launchDate, new BigDecimal(rating), revenue);
+		movie.setVersion(0L);
+		return movie;
+	}
+	
+	private static void assertMovieEquals(Movie expected, Movie actual) {
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getTitle(), actual.getTitle());
+		assertEquals(expected.getLaunchDate(), actual.getLaunchDate());
+		assertEquals(expected.getRating(), actual.getRating());
+		assertEquals(expected.getRevenue(), actual.getRevenue());
+		assertEquals(expected.getVersion(), actual.getVersion());
+	}
+	
+	@Test
+	void shouldStoreAndMaterializeEveryField() {
+		Movie amelie = movie(3L, "Le Fabuleux Destin d'Amélie Poulain", LocalDate.of(2001, 4, 25), "8.3", 174201484L);
+		movieSnapshot.put(amelie);
+		
+		assertMovieEquals(amelie, movieSnapshot.findById(3L).get());
+		assertEquals(List.of(1L, 2L, 3L, 4L), movieSnapshot.findAll().stream().map(Movie::getId).toList());
+		assertTrue(movieSnapshot.findById(5L).isEmpty());
+	}
+	
+	@Test
+	void shouldIgnoreWritesThatArriveOutOfOrder() {
+		Movie newer = movie(2L, "Goodfellas (Director's Cut)", LocalDate.of(1990, 9, 19), "9.0", 46836394L);
+		newer.setVersion(2L);
+		Movie older = movie(2L, "Goodfellas", LocalDate.of(1990, 11, 23), "8.8", 47103483L);
+		older.setVersion(1L);
+		Movie deletedUpdate = movie(1L, "Pulp Fiction", LocalDate.of(1994, 10, 14), "9.0", 212891598L);
+		deletedUpdate.setVersion(1L);
+		
+		movieSnapshot.put(newer);
+		movieSnapshot.put(older);
+		movieSnapshot.remove(1L);
+		movieSnapshot.put(deletedUpdate);
+		
+		assertMovieEquals(newer, movieSnapshot.findById(2L).get());
+		assertTrue(movieSnapshot.findById(1L).isEmpty());
+		assertEquals(2, movieSnapshot.size());
+	}
+	
+	@Test
+	void shouldReplaceUpdatedAndHideDeletedMovies() {
+		Movie updated = movie(2L, "Goodfellas (Director's Cut)", LocalDate.of(1990, 9, 19), "9.0", 46836394L);
+		updated.setVersion(1L);
+		movieSnapshot.put(updated);
+		movieSnapshot.remove(1L);
+		
+		assertMovieEquals(updated, movieSnapshot.findById(2L).get());
+		assertTrue(movieSnapshot.findById(1L).isEmpty());
+		assertEquals(List.of(2L, 4L), movieSnapshot.findAll().stream().map(Movie::getId).toList());
+		assertEquals(2, movieSnapshot.size());
+	}
+	
+	@Test
+	void shouldFindPagesAndLaunchDates() {
+		movieSnapshot.remove(2L);
+		
+		assertEquals(List.of(1L), movieSnapshot.findPage(null, 1).stream().map(Movie::getId).toList());
+		assertEquals(List.of(4L), movieSnapshot.findPage(1L, 10).stream().map(Movie::getId).toList());
+		assertEquals(List.of(4L), movieSnapshot.findPage(2L, 10).stream().map(Movie::getId).toList());
+		assertEquals(List.of(4L), movieSnapshot.findByLaunchDate(LocalDate.of(1972, 10, 24)).stream().map(Movie::getId).toList());
+		assertTrue(movieSnapshot.findByLaunchDate(LocalDate.of(1990, 11, 23)).isEmpty());
+	}
+	
+	@Test
+	void shouldCompactAfterManyDeletes() {
+		List<Movie> movies = new ArrayList<>();
+		for (long id = 10; id < 5_010; id++) {
+			movies.add(movie(id, "Movie " + id, LocalDate.of(2000, 1, 1), "5.0", id));
+		}
+		movieSnapshot.putAll(movies);
+		for (long id = 10; id < 4_010; id++) {
+			movieSnapshot.remove(id);
+		}
+		
+		assertEquals(1_003, movieSnapshot.size());
+		assertEquals("Movie 4010", movieSnapshot.findById(4_010L).get().getTitle());
+		assertEquals(List.of(4L, 4_010L), movieSnapshot.findPage(2L, 2).stream().map(Movie::getId).toList());
+	}
+	
+	@Test
+	void shouldIgnoreWritesWhenDisabled() {
+		movieSnapshot = new MovieSnapshot("database");
+		movieSnapshot.put(movie(1L, "Pulp Fiction", LocalDate.of(1994, 10, 14), "8.9", 212891598L));
+		
+		assertFalse(movieSnapshot.isEnabled());
+		assertEquals(0, movieSnapshot.size());
+	}
+}